@@ -1,6 +1,7 @@
 plugins {
     id("java")
     id("application")
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 group = "me.hysong"
@@ -23,10 +24,51 @@ application {
     mainClass = "org.kynesys.ksscripting.KSScriptingInterpreter"
 }
 
+// Vector API kernels for bulk Math live in src/vector/java. Compiling them needs the incubating jdk.incubator.vector module,
+// which makes javac warn on every build, so they are only built and packaged with -Pvector.
+// At run time they are only used when the JVM is started with --add-modules jdk.incubator.vector,
+// including java -jar, since a jar manifest cannot add modules; otherwise bulk Math runs its scalar loops.
+val vectorKernels = project.hasProperty("vector")
+val vectorJvmArgs = if (vectorKernels) listOf("--add-modules", "jdk.incubator.vector") else emptyList()
+
+sourceSets {
+    create("vector") {
+        compileClasspath += sourceSets.main.get().output
+    }
+}
+
+tasks.named<JavaCompile>("compileVectorJava") {
+    options.compilerArgs.addAll(listOf("--add-modules", "jdk.incubator.vector"))
+}
+
+if (vectorKernels) {
+    dependencies {
+        runtimeOnly(sourceSets["vector"].output)
+        "jmhRuntimeOnly"(sourceSets["vector"].output)
+    }
+    application {
+        applicationDefaultJvmArgs = vectorJvmArgs
+    }
+    tasks.jar {
+        from(sourceSets["vector"].output)
+    }
+}
+
 tasks.test {
     useJUnitPlatform()
 }
 
+// Benchmarks live in src/jmh/java; run with ./gradlew jmh
+jmh {
+    jmhVersion = "1.37"
+    warmupIterations = 3
+    iterations = 5
+    fork = 1
+    jvmArgsAppend = vectorJvmArgs
+    resultFormat = "JSON"
+    resultsFile = layout.buildDirectory.file("reports/jmh/results.json")
+}
+
 tasks.jar {
     archiveBaseName.set(project.name)
     archiveVersion.set("")
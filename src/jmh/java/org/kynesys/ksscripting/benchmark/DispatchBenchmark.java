@@ -0,0 +1,52 @@
+package org.kynesys.ksscripting.benchmark;
+
+import org.kynesys.ksscripting.KSScriptingInterpreter;
+import org.kynesys.lwks.KSEnvironment;
+import org.kynesys.lwks.KSExecutionSession;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Command dispatch: arithmetic chains and reflective method calls
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DispatchBenchmark {
+
+    private KSExecutionSession session;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        session = new KSExecutionSession(new KSEnvironment());
+        KSScriptingInterpreter.executeLines(new String[]{
+                "StoreValue a = {Int 7}",
+                "StoreValue sb = {NewObject java.lang.StringBuilder}",
+                "StoreValue text = {GetAsString benchmark}",
+        }, session);
+    }
+
+    @Benchmark
+    public Object mathAddChain() {
+        return KSScriptingInterpreter.executeLine("Math add {Math add {Math add {Math add {{a}} {Int 1}} {Int 2}} {Int 3}} {Int 4}", session);
+    }
+
+    @Benchmark
+    public Object invokeMethodNoArgs() {
+        return KSScriptingInterpreter.executeLine("InvokeMethodOf {{text}} length", session);
+    }
+
+    @Benchmark
+    public Object invokeMethodWithArgs() {
+        return KSScriptingInterpreter.executeLine("InvokeMethodOf {{text}} substring {Int 1} {Int 4}", session);
+    }
+
+    @Benchmark
+    public Object invokeMethodWithWidening() {
+        return KSScriptingInterpreter.executeLine("InvokeMethodOf {{sb}} setLength {Int 0}", session);
+    }
+
+    @Benchmark
+    public Object staticInvoke() {
+        return KSScriptingInterpreter.executeLine("StaticInvoke java.lang.Math max {{a}} {Int 3}", session);
+    }
+}
@@ -0,0 +1,78 @@
+package org.kynesys.ksscripting.benchmark;
+
+import org.kynesys.ksscripting.KSScriptingInterpreter;
+import org.kynesys.lwks.KSEnvironment;
+import org.kynesys.lwks.KSExecutionSession;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Loop commands; each invocation runs `iterations` script-level iterations
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LoopBenchmark {
+
+    @Param({"1000"})
+    private int iterations;
+
+    private KSExecutionSession session;
+    private KSExecutionSession compiledSession; // same code block, run by the MethodHandle backend
+    private String forLine;
+    private String whileLine;
+    private String bulkSumLine;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        session = new KSExecutionSession(new KSEnvironment());
+        forLine = "For x in {Range 0 " + iterations + "} StoreValue total = {Math add {{total}} {{x}}}";
+        bulkSumLine = "StoreValue total = {Math sum {Range 0 " + iterations + "}}";
+        whileLine = "While {CompareNumber {{i}} < {Int " + iterations + "}} StoreValue i = {Math add {{i}} {Int 1}}";
+
+        String[] codeblock = {
+                "Codeblock bench make",
+                "Codeblock bench add StoreValue i = {Math add {{i}} {Int 1}}",
+                "Codeblock bench add StoreValue total = {Math add {{total}} {{i}}}",
+        };
+        KSScriptingInterpreter.executeLines(codeblock, session);
+
+        compiledSession = new KSExecutionSession(new KSEnvironment());
+        compiledSession.getEnvironment().getEnvVar().put("Backend", "handles");
+        compiledSession.getEnvironment().getEnvVar().put("BackendThreshold", "1");
+        KSScriptingInterpreter.executeLines(codeblock, compiledSession);
+    }
+
+    @Setup(Level.Invocation)
+    public void reset() {
+        session.setComplexVariable("i", 0);
+        session.setComplexVariable("total", 0);
+        compiledSession.setComplexVariable("i", 0);
+        compiledSession.setComplexVariable("total", 0);
+    }
+
+    @Benchmark
+    public Object forOverRange() {
+        return KSScriptingInterpreter.executeLine(forLine, session);
+    }
+
+    // Same total as forOverRange, as one bulk Math call
+    @Benchmark
+    public Object bulkSumOverRange() {
+        return KSScriptingInterpreter.executeLine(bulkSumLine, session);
+    }
+
+    @Benchmark
+    public Object whileCounter() {
+        return KSScriptingInterpreter.executeLine(whileLine, session);
+    }
+
+    @Benchmark
+    public Object codeblockRun() {
+        return KSScriptingInterpreter.executeLine("Codeblock bench run", session);
+    }
+
+    @Benchmark
+    public Object codeblockRunCompiled() {
+        return KSScriptingInterpreter.executeLine("Codeblock bench run", compiledSession);
+    }
+}
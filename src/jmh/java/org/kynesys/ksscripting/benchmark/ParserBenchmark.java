@@ -0,0 +1,59 @@
+package org.kynesys.ksscripting.benchmark;
+
+import org.kynesys.ksscripting.KSScriptingInterpreter;
+import org.kynesys.lwks.KSEnvironment;
+import org.kynesys.lwks.KSExecutionSession;
+import org.kynesys.lwks.KSStringController;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Line splitting and single line execution, including the compiled line cache
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ParserBenchmark {
+
+    private static final String SIMPLE_LINE = "StoreValue x = {Int 1}";
+    // The innermost operand is a variable, so no level of the nesting can be folded to a constant
+    private static final String NESTED_LINE = "StoreValue y = {Math add {Int 1} {Math add {Int 2} {Math add {Int 3} {Math add {Int 4} {{x}}}}}}";
+    private static final String QUOTED_LINE = "StoreValue s = {GetAsString \"hello world\" \"a b c\" {{x}}}";
+
+    private KSExecutionSession session;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        session = new KSExecutionSession(new KSEnvironment());
+        KSScriptingInterpreter.executeLine(SIMPLE_LINE, session);
+    }
+
+    @Benchmark
+    public String[] splitSimple() {
+        return KSStringController.splitStringAsArguments(SIMPLE_LINE);
+    }
+
+    @Benchmark
+    public String[] splitNested() {
+        return KSStringController.splitStringAsArguments(NESTED_LINE);
+    }
+
+    @Benchmark
+    public String[] splitQuoted() {
+        return KSStringController.splitStringAsArguments(QUOTED_LINE);
+    }
+
+    @Benchmark
+    public Object executeSimpleLine() {
+        return KSScriptingInterpreter.executeLine(SIMPLE_LINE, session);
+    }
+
+    @Benchmark
+    public Object executeNestedLine() {
+        return KSScriptingInterpreter.executeLine(NESTED_LINE, session);
+    }
+
+    @Benchmark
+    public Object executeQuotedLine() {
+        return KSScriptingInterpreter.executeLine(QUOTED_LINE, session);
+    }
+}
@@ -2,14 +2,24 @@ package org.kynesys.ksscripting;
 
 
 
+import org.kynesys.ksscripting.backend.HandleBackend;
+import org.kynesys.ksscripting.compiler.CommandNode;
+import org.kynesys.ksscripting.compiler.CompiledScript;
+import org.kynesys.ksscripting.compiler.KSScriptingCompiler;
+import org.kynesys.ksscripting.compiler.Node;
+import org.kynesys.ksscripting.compiler.ScriptCache;
+import org.kynesys.ksscripting.compiler.ScriptSource;
+import org.kynesys.ksscripting.compiler.SubcommandNode;
 import org.kynesys.lwks.KSEnvironment;
 import org.kynesys.lwks.KSExecutionSession;
+import org.kynesys.lwks.KSProfiler;
+import org.kynesys.lwks.KSResolvedCommand;
 import org.kynesys.lwks.KSScriptingExecutable;
-import org.kynesys.lwks.KSStringController;
 
 import javax.swing.*;
 import java.awt.event.MouseAdapter;
 import java.io.*;
+import java.lang.invoke.MethodHandle;
 import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -18,47 +28,30 @@ import java.util.Scanner;
 public class KSScriptingInterpreter {
 
     public static Object executeLine(String line, KSExecutionSession session) {
-        String[] linePartsInString = KSStringController.splitStringAsArguments(line);
-        Object[] lineParts = new Object[linePartsInString.length];
-
-        // Copy linePartsInString to lineParts
-        for (int i = 0; i < linePartsInString.length; i++) {
-            String part = linePartsInString[i];
-            if (part == null || part.isEmpty()) {
-                lineParts[i] = null;
-            } else {
-                lineParts[i] = part;
-            }
-        }
-
-        // Execute the command
-        return execute(lineParts, session);
+        return execute(KSScriptingCompiler.getCachedLine(line), session);
     }
 
     public static Object execute(Object[] lineParts, KSExecutionSession session) {
+        return execute(KSScriptingCompiler.compileParts(lineParts), session);
+    }
+
+    public static Object execute(CommandNode line, KSExecutionSession session) {
 
         if (session.isSessionTerminated()) {
             return session.getTerminatingValue();
         }
 
-        StringBuilder lineBuilder = new StringBuilder();
-        for (Object part : lineParts) {
-            if (part != null) {
-                lineBuilder.append(part).append(" ");
-            }
-        }
-
-        if (lineParts.length == 0) {
+        if (line.isEmpty()) {
             return 1;
         }
 
         // Check if line starts with //
-        if (lineParts[0] instanceof String linePart && linePart.startsWith("//")) {
+        if (line.isComment()) {
             return 0; // Ignore comment
         }
 
         // Check command
-        Object commandLocation = lineParts[0];
+        Object commandLocation = line.getCommandPart();
         if (!(commandLocation instanceof String command)) {
             throw new RuntimeException("Command name must be a string");
         }
@@ -69,108 +62,70 @@ public class KSScriptingInterpreter {
             throw new RuntimeException("Command name cannot contain spaces");
         }
 
-        // Get command class
-        // If command contains ".", use it as the full class name
-        // Else, try to find the class in the package paths
-        Class<?> commandClass = null;
-        if (command.contains(".")) {
-            try {
-                commandClass = Class.forName(command);
-            } catch (ClassNotFoundException e) {
-                throw new RuntimeException("Command class not found (Auto pathing not used): " + command, e);
-            }
-        } else {
-            for (int i = 0; i < session.getPackagePaths().size(); i++) {
-                try {
-                    commandClass = Class.forName(session.getPackagePaths().get(i) + "." + command);
-                } catch (ClassNotFoundException e) {
-                    continue;
-                }
+        // Get command instance
+        KSResolvedCommand resolvedCommand = session.getCommandRegistry().resolve(command);
+        KSScriptingExecutable commandInstance = resolvedCommand.getInstance();
+
+        // Pure commands whose arguments are all constants run once per compiled line
+        boolean foldable = line.isConstant() && commandInstance.isPure();
+        if (foldable) {
+            Object folded = line.getFoldedValue(resolvedCommand);
+            if (folded != CommandNode.NOT_FOLDED) {
+                return folded;
             }
         }
-        if (commandClass == null) {
-            throw new RuntimeException("Command class not found: " + command);
-        }
 
-
-        // Check if commandClass is a subclass of KSScriptingExecutable
-        if (!KSScriptingExecutable.class.isAssignableFrom(commandClass)) {
-            throw new RuntimeException("Command class does not implement KSScriptingExecutable");
+        Object result;
+        KSProfiler profiler = session.getProfiler();
+        if (profiler.isEnabled()) {
+            KSProfiler.Frame frame = profiler.enter(command, commandInstance.getClass(), line.toString());
+            try {
+                result = execute(line, command, resolvedCommand, commandInstance, session);
+            } finally {
+                profiler.exit(frame);
+            }
+        } else {
+            result = execute(line, command, resolvedCommand, commandInstance, session);
         }
 
-        KSScriptingExecutable commandInstance;
-        try {
-            commandInstance = (KSScriptingExecutable) commandClass.getDeclaredConstructor().newInstance();
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to create command instance", e);
+        if (foldable) {
+            line.fold(resolvedCommand, result);
         }
+        return result;
+    }
 
-        // Check if whitelist is enabled
-        int[] whitelist = commandInstance.getPreprocessingInterpreterWhitelist();
-        boolean isWhitelistEnabled = commandInstance.isPreprocessingInterpreterWhitelistEnabled();
+    private static Object execute(CommandNode line, String command, KSResolvedCommand resolvedCommand, KSScriptingExecutable commandInstance, KSExecutionSession session) {
 
-        // Check if there's any part that starts with "{"
-        for (int i = 0; i < lineParts.length; i++) {
+        // Make arguments array, expanding {{variable}} and {command} parts
+        Node[] arguments = line.getArguments();
+        Object[] commandArgs = new Object[arguments.length];
+        for (int i = 0; i < arguments.length; i++) {
+            Node argument = arguments[i];
 
             // Skip the un-whitelisted parts
-            if (isWhitelistEnabled) {
-                boolean whitelisted = false;
-                for (int k : whitelist) {
-                    if (i - 1 == k) {
-                        whitelisted = true;
-                        break;
-                    }
-                }
-                if (!whitelisted) {
-                    continue;
-                }
-            }
-
-            Object part = lineParts[i];
-
-            if (part == null) {
+            if (!resolvedCommand.isPreprocessed(i)) {
+                commandArgs[i] = argument.getRawValue();
                 continue;
             }
 
-            // Interpret only string
-            if (part instanceof String partStr) {
-
-                // Double brace: Replace with variable in session
-                if (partStr.startsWith("{{") && partStr.endsWith("}}")) {
-                    String variableName = partStr.substring(2, partStr.length() - 2);
-                    Object variableValue = session.getComplexVariable(variableName);
-                    if (variableValue != null) {
-                        lineParts[i] = variableValue;
-                    } else {
-                        throw new RuntimeException("Variable " + variableName + " not found in session");
-                    }
-                }
-
-                // Single brace: Replace with the result returned from the execution
-                else if (partStr.startsWith("{") && partStr.endsWith("}")) {
-                    String subCommand = partStr.substring(1, partStr.length() - 1);
-                    Object result;
-                    try {
-                        result = executeLine(subCommand, session);
-                    } catch (Exception e) {
-                        throw new RuntimeException("Failed to execute command \"" + subCommand + "\" in argument " + i + ": \"" + lineBuilder + "\"", e);
-                    }
-                    lineParts[i] = result;
+            if (argument instanceof SubcommandNode subcommand) {
+                try {
+                    commandArgs[i] = subcommand.evaluate(session);
+                } catch (Exception e) {
+                    String subCommand = subcommand.getSource().substring(1, subcommand.getSource().length() - 1);
+                    throw new RuntimeException("Failed to execute command \"" + subCommand + "\" in argument " + (i + 1) + ": \"" + line.getSource() + "\"", e);
                 }
+            } else {
+                commandArgs[i] = argument.evaluate(session);
             }
         }
 
-        // Make arguments array
-        Object[] commandArgs = new Object[lineParts.length - 1];
-        System.arraycopy(lineParts, 1, commandArgs, 0, lineParts.length - 1);
-
-
         // Execute command
         Object result;
         try {
-            result = commandInstance.execute(commandArgs, session);
+            result = commandInstance.execute(commandArgs, session, line.getCallSite());
         } catch (Exception e) {
-            throw new RuntimeException("Failed to execute command \"" + command + "\" at line: \"" + lineBuilder + "\"", e);
+            throw new RuntimeException("Failed to execute command \"" + command + "\" at line: \"" + line.getSource() + "\"", e);
         }
 
         // Return result
@@ -178,22 +133,36 @@ public class KSScriptingInterpreter {
     }
 
     public static Object executeLines(String[] lines, KSExecutionSession session) {
+        return executeLines(KSScriptingCompiler.compileScript(lines), session);
+    }
+
+    public static Object executeLines(CompiledScript script, KSExecutionSession session) {
+        MethodHandle compiled = HandleBackend.compiledFor(script, session);
+        if (compiled != null) {
+            try {
+                return (Object) compiled.invokeExact(session);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new RuntimeException(e);
+            }
+        }
+
         Object result = null;
+        CommandNode[] lines = script.getLines();
         for (int i = 0; i < lines.length; i++) {
             if (session.isSessionTerminated()) {
                 return session.getTerminatingValue();
             }
-            String line = lines[i];
-//            System.out.println("// Executing line " + (i + 1) + ": \"" + line + "\"");
-            if (line == null || line.isEmpty()) {
+            CommandNode line = lines[i];
+            if (line == null) {
                 continue;
             }
             try {
-                result = executeLine(line, session);
+                result = execute(line, session);
                 session.setLastResult(result);
-//                System.out.println("// Exited: " + result + " (" + (result != null ? result.getClass().getSimpleName() : "null") + ")");
             } catch (Exception e) {
-                throw new RuntimeException("Failed to execute line " + (i + 1) + ": \"" + line + "\"", e);
+                throw new RuntimeException("Failed to execute line " + (i + 1) + ": \"" + script.getSourceLines()[i] + "\"", e);
             }
         }
         return result;
@@ -206,15 +175,13 @@ public class KSScriptingInterpreter {
     }
 
     public static String readFile(File f, boolean omitComment) throws IOException {
-        BufferedReader br = new BufferedReader(new FileReader(f));
         StringBuilder sb = new StringBuilder();
-        while (true) {
-            String l = br.readLine();
-            if (l == null) {
-                break;
+        try (ScriptSource source = ScriptSource.open(f)) {
+            String l;
+            while ((l = source.nextLine()) != null) {
+                if ((l.startsWith("#") || l.startsWith("//")) && omitComment) continue;
+                sb.append(l).append("\n");
             }
-            if ((l.startsWith("#") || l.startsWith("//")) && omitComment) continue;
-            sb.append(l).append("\n");
         }
         return sb.toString();
     }
@@ -231,6 +198,9 @@ public class KSScriptingInterpreter {
             inputHeadFormat = inputHeadFormat.replace("{CurrentDirectoryWithSimplifyIfHome}", currentDirectory.equals(currentUserHome) ? "~" : currentDirectory);
             inputHeadFormat = inputHeadFormat.replace("{CurrentDirectory}", currentDirectory);
             System.out.print(inputHeadFormat);
+            if (!scanner.hasNextLine()) {
+                return; // End of input
+            }
             try {
                 Object output = executeLine(scanner.nextLine(), session);
                 session.setLastResult(output);
@@ -243,6 +213,24 @@ public class KSScriptingInterpreter {
         }
     }
 
+    // Runs one -ScriptMode statement, compiling it unless it already is; returns false when the script has to stop
+    private static boolean runScriptStatement(String line, CommandNode compiled, long lineNumber, KSExecutionSession session) {
+        // If shell mode, enter shell mode
+        if (line.trim().equals("ShellMode")) {
+            shellMode(session);
+            return true;
+        }
+
+        try {
+            execute(compiled != null ? compiled : KSScriptingCompiler.compileLine(line), session);
+            return true;
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.out.println("Interpreter Error: Failed executing line " + lineNumber + ": " + line);
+            return false;
+        }
+    }
+
     public static void main(String[] args) throws Exception {
 
 
@@ -307,6 +295,15 @@ public class KSScriptingInterpreter {
         // Example of using the execute method
         KSExecutionSession session = new KSExecutionSession(new KSEnvironment());
 
+        // Asynchronous task threads are daemons, so wait for queued tasks here on every way out of main (SysExit still exits right away)
+        try {
+            run(args, session);
+        } finally {
+            session.getTaskExecutor().shutdownAndAwait();
+        }
+    }
+
+    private static void run(String[] args, KSExecutionSession session) throws Exception {
         if (args.length == 0) {
             shellMode(session);
         } else if (args[0].equals("-ScriptMode")) {
@@ -350,30 +347,42 @@ public class KSScriptingInterpreter {
 
             // Load script
             File f = new File(args[1]);
-            String[] lines = readFile(f, false).split("\n");
 
-            // Run line
-            for (int i = 0; i < lines.length; i++) {
-                String line = lines[i];
-
-                // Omit comment
-                if (line.trim().isEmpty() || line.trim().startsWith("#") || line.trim().startsWith("//")) continue;
+            // Profile=1 records the whole run; the collapsed stacks go to ProfileOutput (default: <script>.collapsed)
+            if (session.getEnvironment().getEnvVar().getOrDefault("Profile", "0").equals("1")) {
+                session.getProfiler().start();
+            }
 
-                // If shell mode, enter shell mode
-                if (line.trim().equals("ShellMode")) {
-                    shellMode(session);
-                    continue;
+            // ScriptCache=1 (or a directory) reuses the compiled script from a .kssc file while the script is unchanged
+            String scriptCache = session.getEnvironment().getEnvVar().getOrDefault("ScriptCache", "");
+            if (!scriptCache.isEmpty()) {
+                CompiledScript script = ScriptCache.load(f, scriptCache);
+                CommandNode[] lines = script.getLines();
+                for (int i = 0; i < lines.length && !session.isSessionTerminated(); i++) {
+                    if (lines[i] == null) continue;
+                    if (!runScriptStatement(script.getSourceLines()[i], lines[i], i + 1, session)) break;
                 }
-
-                try {
-                    executeLine(line, session);
-                } catch (Exception e) {
-                    e.printStackTrace();
-                    System.out.println("Interpreter Error: Failed executing line " + (i + 1) + ": " + line);
-                    break;
+            } else {
+                // Lines are read and compiled as they are reached, so large scripts start immediately and are never held in memory
+                // ScriptReader=mapped memory-maps the file instead, for very large generated scripts
+                boolean mapped = session.getEnvironment().getEnvVar().getOrDefault("ScriptReader", "").equals("mapped");
+                try (ScriptSource source = mapped ? ScriptSource.map(f) : ScriptSource.open(f)) {
+                    String line;
+                    while (!session.isSessionTerminated() && (line = source.nextStatement()) != null) {
+                        if (!runScriptStatement(line, null, source.getLineNumber(), session)) break;
+                    }
                 }
             }
 
+            // Let asynchronous tasks finish before reporting
+            session.getTaskExecutor().shutdownAndAwait();
+
+            if (session.getProfiler().hasData()) {
+                File profileOutput = new File(session.getEnvironment().getEnvVar().getOrDefault("ProfileOutput", args[1] + ".collapsed"));
+                session.getProfiler().writeCollapsedStacks(profileOutput);
+                System.err.println("Profile written to " + profileOutput.getPath());
+            }
+
         } else {
             execute(args, session);
         }
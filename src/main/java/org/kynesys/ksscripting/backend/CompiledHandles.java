@@ -0,0 +1,27 @@
+package org.kynesys.ksscripting.backend;
+
+import lombok.Getter;
+import org.kynesys.lwks.KSCommandRegistry;
+
+import java.lang.invoke.MethodHandle;
+
+/**
+ * MethodHandle form of a compiled script, valid while its registry resolves names the same way as when it was built.
+ */
+@Getter
+public class CompiledHandles {
+
+    private final KSCommandRegistry registry;
+    private final int registryVersion;
+    private final MethodHandle root; // (KSExecutionSession) -> Object, same result as KSScriptingInterpreter.executeLines
+
+    CompiledHandles(KSCommandRegistry registry, int registryVersion, MethodHandle root) {
+        this.registry = registry;
+        this.registryVersion = registryVersion;
+        this.root = root;
+    }
+
+    public boolean isValidFor(KSCommandRegistry registry, int version) {
+        return this.registry == registry && this.registryVersion == version;
+    }
+}
@@ -0,0 +1,53 @@
+package org.kynesys.ksscripting.backend;
+
+import org.kynesys.ksscripting.compiler.CompiledScript;
+import org.kynesys.lwks.KSCommandRegistry;
+import org.kynesys.lwks.KSExecutionSession;
+
+import java.lang.invoke.MethodHandle;
+import java.util.Map;
+
+/**
+ * Optional backend for scripts and code blocks that run many times (Backend=handles).
+ * Once a compiled script has run BackendThreshold times (default 100) in a session, each of its lines is turned into a MethodHandle tree
+ * with the resolved command and constant arguments bound in; after enough calls the JVM customizes each tree into bytecode,
+ * so the JIT can inline the argument evaluation and the command call within a line.
+ * The lines themselves are run by a plain loop over the handles (see HandleCompiler.compileScript), the same as the interpreter's,
+ * so nothing is inlined across lines and script length is not limited.
+ */
+public class HandleBackend {
+
+    public static final int DEFAULT_THRESHOLD = 100;
+
+    // Root handle to run the script with, or null to interpret it this time
+    public static MethodHandle compiledFor(CompiledScript script, KSExecutionSession session) {
+        Map<String, String> env = session.getEnvironment().getEnvVar();
+        if (!"handles".equals(env.get("Backend"))) {
+            return null;
+        }
+        if (script.countExecution() < threshold(env)) {
+            return null;
+        }
+
+        KSCommandRegistry registry = session.getCommandRegistry();
+        int version = registry.getVersion();
+        CompiledHandles compiled = script.getCompiledHandles();
+        if (compiled == null || !compiled.isValidFor(registry, version)) {
+            compiled = new CompiledHandles(registry, version, new HandleCompiler(registry, version).compileScript(script));
+            script.setCompiledHandles(compiled);
+        }
+        return compiled.getRoot();
+    }
+
+    private static int threshold(Map<String, String> env) {
+        String value = env.get("BackendThreshold");
+        if (value == null) {
+            return DEFAULT_THRESHOLD;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return DEFAULT_THRESHOLD;
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package org.kynesys.ksscripting.backend;
+
+import org.kynesys.ksscripting.KSScriptingInterpreter;
+import org.kynesys.ksscripting.compiler.CommandNode;
+import org.kynesys.ksscripting.compiler.CompiledScript;
+import org.kynesys.ksscripting.compiler.LiteralNode;
+import org.kynesys.ksscripting.compiler.Node;
+import org.kynesys.ksscripting.compiler.SubcommandNode;
+import org.kynesys.lwks.KSCallSite;
+import org.kynesys.lwks.KSCommandRegistry;
+import org.kynesys.lwks.KSExecutionSession;
+import org.kynesys.lwks.KSResolvedCommand;
+import org.kynesys.lwks.KSScriptingExecutable;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Turns compiled lines into MethodHandle trees with the commands resolved and bound as constants.
+ * Every command handle does what KSScriptingInterpreter.execute does for that line, in the same order and with the same error messages,
+ * and is guarded so that it falls back to the interpreter when the session is terminated, the profiler is on,
+ * or the registry no longer resolves names the way it did at compile time.
+ * Lines the backend does not specialize (comments, pure calls that fold, unresolvable commands) always go through the interpreter.
+ */
+class HandleCompiler {
+
+    private static final Class<KSExecutionSession> SESSION = KSExecutionSession.class;
+
+    private static final MethodHandle INTERPRET;        // (CommandNode, KSExecutionSession) -> Object
+    private static final MethodHandle CAN_RUN_COMPILED; // (KSCommandRegistry, int, KSExecutionSession) -> boolean
+    private static final MethodHandle RUN_COMMAND;      // (KSScriptingExecutable, KSCallSite, String, Object[], KSExecutionSession) -> Object
+    private static final MethodHandle RUN_NEW_COMMAND;  // (KSResolvedCommand, KSCallSite, String, Object[], KSExecutionSession) -> Object
+    private static final MethodHandle RUN_LINES;        // (MethodHandle[], String[], KSExecutionSession) -> Object
+    private static final MethodHandle EVALUATE;         // (Node, KSExecutionSession) -> Object
+    private static final MethodHandle FAIL;             // (String, Exception) -> Object, always throws
+    private static final MethodHandle NEW_ARRAY = MethodHandles.arrayConstructor(Object[].class);
+
+    static {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try {
+            INTERPRET = lookup.findStatic(KSScriptingInterpreter.class, "execute", MethodType.methodType(Object.class, CommandNode.class, SESSION));
+            CAN_RUN_COMPILED = lookup.findStatic(HandleCompiler.class, "canRunCompiled", MethodType.methodType(boolean.class, KSCommandRegistry.class, int.class, SESSION));
+            RUN_COMMAND = lookup.findStatic(HandleCompiler.class, "runCommand", MethodType.methodType(Object.class, KSScriptingExecutable.class, KSCallSite.class, String.class, Object[].class, SESSION));
+            RUN_NEW_COMMAND = lookup.findStatic(HandleCompiler.class, "runNewCommand", MethodType.methodType(Object.class, KSResolvedCommand.class, KSCallSite.class, String.class, Object[].class, SESSION));
+            RUN_LINES = lookup.findStatic(HandleCompiler.class, "runLines", MethodType.methodType(Object.class, MethodHandle[].class, String[].class, SESSION));
+            EVALUATE = lookup.findVirtual(Node.class, "evaluate", MethodType.methodType(Object.class, SESSION));
+            FAIL = lookup.findStatic(HandleCompiler.class, "fail", MethodType.methodType(Object.class, String.class, Exception.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final KSCommandRegistry registry;
+    private final int registryVersion;
+
+    HandleCompiler(KSCommandRegistry registry, int registryVersion) {
+        this.registry = registry;
+        this.registryVersion = registryVersion;
+    }
+
+    // (KSExecutionSession) -> Object, with the semantics of KSScriptingInterpreter.executeLines(script, session)
+    MethodHandle compileScript(CompiledScript script) {
+        CommandNode[] lines = script.getLines();
+        String[] sourceLines = script.getSourceLines();
+        MethodHandle[] handles = new MethodHandle[lines.length];
+        String[] failures = new String[lines.length];
+        for (int i = 0; i < lines.length; i++) {
+            if (lines[i] == null) continue;
+            handles[i] = compileCommand(lines[i]);
+            failures[i] = "Failed to execute line " + (i + 1) + ": \"" + sourceLines[i] + "\"";
+        }
+        return MethodHandles.insertArguments(RUN_LINES, 0, handles, failures);
+    }
+
+    // (KSExecutionSession) -> Object, with the semantics of KSScriptingInterpreter.execute(line, session)
+    MethodHandle compileCommand(CommandNode line) {
+        MethodHandle interpreted = MethodHandles.insertArguments(INTERPRET, 0, line);
+        if (line.isEmpty() || line.isComment() || !(line.getCommandPart() instanceof String command) || command.isEmpty() || command.contains(" ")) {
+            return interpreted;
+        }
+
+        KSResolvedCommand resolved;
+        KSScriptingExecutable instance;
+        try {
+            resolved = registry.resolve(command);
+            instance = resolved.getInstance();
+        } catch (RuntimeException e) {
+            // Not resolvable now; the interpreter reports it if the line runs
+            return interpreted;
+        }
+        if (line.isConstant() && instance.isPure()) {
+            // Folds to a constant in the interpreter after the first run
+            return interpreted;
+        }
+
+        // (Object[], KSExecutionSession) -> Object
+        String failure = "Failed to execute command \"" + command + "\" at line: \"" + line.getSource() + "\"";
+        MethodHandle invoke = instance.isStateless()
+                ? MethodHandles.insertArguments(RUN_COMMAND, 0, instance, line.getCallSite(), failure)
+                : MethodHandles.insertArguments(RUN_NEW_COMMAND, 0, resolved, line.getCallSite(), failure);
+
+        // (KSExecutionSession) -> Object[]; filterArguments applies its filters left to right, the interpreter's evaluation order
+        Node[] arguments = line.getArguments();
+        MethodHandle collect;
+        if (arguments.length == 0) {
+            collect = MethodHandles.dropArguments(MethodHandles.insertArguments(NEW_ARRAY, 0, 0), 0, SESSION);
+        } else {
+            MethodHandle[] values = new MethodHandle[arguments.length];
+            for (int i = 0; i < arguments.length; i++) {
+                values[i] = compileArgument(line, resolved, i, arguments[i]);
+            }
+            collect = MethodHandles.identity(Object[].class).asCollector(Object[].class, arguments.length);
+            collect = MethodHandles.filterArguments(collect, 0, values);
+            collect = MethodHandles.permuteArguments(collect, MethodType.methodType(Object[].class, SESSION), new int[arguments.length]);
+        }
+        MethodHandle compiled = MethodHandles.foldArguments(invoke, collect);
+
+        MethodHandle test = MethodHandles.insertArguments(CAN_RUN_COMPILED, 0, registry, registryVersion);
+        return MethodHandles.guardWithTest(test, compiled, interpreted);
+    }
+
+    // (KSExecutionSession) -> Object for one argument
+    private MethodHandle compileArgument(CommandNode line, KSResolvedCommand resolved, int index, Node argument) {
+        if (!resolved.isPreprocessed(index)) {
+            return constant(argument.getRawValue());
+        }
+        if (argument instanceof LiteralNode literal) {
+            return constant(literal.getValue());
+        }
+        if (argument instanceof SubcommandNode subcommand) {
+            String source = subcommand.getSource();
+            return catchAndWrap(compileCommand(subcommand.getCommand()),
+                    "Failed to execute command \"" + source.substring(1, source.length() - 1) + "\" in argument " + (index + 1) + ": \"" + line.getSource() + "\"");
+        }
+        return EVALUATE.bindTo(argument);
+    }
+
+    private static MethodHandle constant(Object value) {
+        return MethodHandles.dropArguments(MethodHandles.constant(Object.class, value), 0, SESSION);
+    }
+
+    // (KSExecutionSession) -> Object handle whose exceptions are rethrown as RuntimeException(message, cause)
+    private static MethodHandle catchAndWrap(MethodHandle handle, String message) {
+        MethodHandle failed = MethodHandles.insertArguments(FAIL, 0, message);
+        return MethodHandles.catchException(handle, Exception.class, MethodHandles.dropArguments(failed, 1, SESSION));
+    }
+
+    private static boolean canRunCompiled(KSCommandRegistry registry, int version, KSExecutionSession session) {
+        return !session.isSessionTerminated()
+                && !session.getProfiler().isEnabled()
+                && session.getCommandRegistry() == registry
+                && registry.getVersion() == version;
+    }
+
+    private static Object runCommand(KSScriptingExecutable command, KSCallSite site, String failure, Object[] args, KSExecutionSession session) {
+        try {
+            return command.execute(args, session, site);
+        } catch (Exception e) {
+            throw new RuntimeException(failure, e);
+        }
+    }
+
+    private static Object runNewCommand(KSResolvedCommand resolved, KSCallSite site, String failure, Object[] args, KSExecutionSession session) {
+        KSScriptingExecutable command = resolved.getInstance();
+        try {
+            return command.execute(args, session, site);
+        } catch (Exception e) {
+            throw new RuntimeException(failure, e);
+        }
+    }
+
+    // Same loop as KSScriptingInterpreter.executeLines over the compiled lines
+    private static Object runLines(MethodHandle[] lines, String[] failures, KSExecutionSession session) throws Throwable {
+        Object result = null;
+        for (int i = 0; i < lines.length; i++) {
+            if (session.isSessionTerminated()) {
+                return session.getTerminatingValue();
+            }
+            MethodHandle line = lines[i];
+            if (line == null) {
+                continue;
+            }
+            try {
+                result = (Object) line.invokeExact(session);
+                session.setLastResult(result);
+            } catch (Exception e) {
+                throw new RuntimeException(failures[i], e);
+            }
+        }
+        return result;
+    }
+
+    private static Object fail(String message, Exception cause) {
+        throw new RuntimeException(message, cause);
+    }
+}
@@ -1,9 +1,11 @@
 package org.kynesys.ksscripting.commands;
 
 import org.kynesys.ksscripting.objects.KSScriptingNull;
+import org.kynesys.ksscripting.objects.RangeObject;
 import org.kynesys.lwks.KSExecutionSession;
 import org.kynesys.lwks.KSScriptingExecutable;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 
@@ -13,6 +15,11 @@ public class AddItemToIterable implements KSScriptingExecutable {
         return Object.class.getName();
     }
 
+    @Override
+    public boolean isStateless() {
+        return true;
+    }
+
     @Override
     public Object execute(Object[] args, KSExecutionSession session) throws Exception {
         // Usage: AddItemToIterable <iterable> <item>
@@ -28,7 +35,7 @@ public class AddItemToIterable implements KSScriptingExecutable {
 
         if (iterable instanceof List<?>) {
             // Make a copy of the list to avoid modifying the original
-            List<Object> newList = ((List<Object>) iterable).getClass().newInstance();
+            List<Object> newList = iterable instanceof RangeObject ? new ArrayList<>() : ((List<Object>) iterable).getClass().newInstance();
             newList.addAll((List<Object>) iterable);
             newList.add(item);
             return newList; // Return the modified list
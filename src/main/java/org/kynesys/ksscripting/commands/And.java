@@ -10,6 +10,16 @@ public class And implements KSScriptingExecutable {
         return Bool.class.getName();
     }
 
+    @Override
+    public boolean isStateless() {
+        return true;
+    }
+
+    @Override
+    public boolean isPure() {
+        return true;
+    }
+
     @Override
     public Object execute(Object[] args, KSExecutionSession session) throws Exception {
         // Usage: And <condition1> <condition2> ...
@@ -1,6 +1,10 @@
 package org.kynesys.ksscripting.commands;
 
 import lombok.Getter;
+import org.kynesys.ksscripting.compiler.CommandNode;
+import org.kynesys.ksscripting.compiler.KSScriptingCompiler;
+import org.kynesys.ksscripting.objects.AsyncTaskObject;
+import org.kynesys.lwks.KSCallSite;
 import org.kynesys.lwks.KSExecutionSession;
 import org.kynesys.lwks.KSScriptingExecutable;
 import org.kynesys.ksscripting.KSScriptingInterpreter;
@@ -10,24 +14,50 @@ public class Asynchronize implements KSScriptingExecutable {
 
     private final boolean preprocessingInterpreterWhitelistEnabled = true;
     private final int[] preprocessingInterpreterWhitelist = new int[]{};
+    private final boolean stateless = true;
 
     @Override
     public String returnType() {
-        return Thread.class.getName();
+        return AsyncTaskObject.class.getName();
     }
 
     @Override
     public Object execute(Object[] args, KSExecutionSession session) throws Exception {
+        return execute(args, session, null);
+    }
+
+    @Override
+    public Object execute(Object[] args, KSExecutionSession session, KSCallSite site) throws Exception {
         // Usage:
         //   Asynchronize <code>
+        // Runs on the session task executor (see KSTaskExecutor for AsyncMode / AsyncThreads)
+        // Returns a task handle: InvokeMethodOf {{task}} join | poll | cancel | isDone
         if (args == null || args.length < 1) {
             throw new RuntimeException("Asynchronize requires at least one command");
         }
 
-        Thread running = new Thread(() -> {
-            KSScriptingInterpreter.execute(args, session);
-        });
-        running.start();
-        return running;
+        CommandNode command = KSScriptingCompiler.compileBody(args, 0, site);
+        String name = command.toString();
+        return new AsyncTaskObject(name, session.getTaskExecutor().submit(() -> {
+            try {
+                return KSScriptingInterpreter.execute(command, session);
+            } catch (Exception e) {
+                // Report right away, since the handle may never be joined; cancellation is not a failure
+                if (!isInterruption(e)) {
+                    System.err.println("Asynchronous task failed: " + name);
+                    e.printStackTrace();
+                }
+                throw e;
+            }
+        }));
+    }
+
+    private static boolean isInterruption(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof InterruptedException) {
+                return true;
+            }
+        }
+        return false;
     }
 }
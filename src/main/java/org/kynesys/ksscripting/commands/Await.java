@@ -0,0 +1,54 @@
+package org.kynesys.ksscripting.commands;
+
+import org.kynesys.ksscripting.objects.AsyncTaskObject;
+import org.kynesys.lwks.KSExecutionSession;
+import org.kynesys.lwks.KSScriptingExecutable;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+public class Await implements KSScriptingExecutable {
+
+    @Override
+    public String returnType() {
+        return Object.class.getName();
+    }
+
+    @Override
+    public boolean isStateless() {
+        return true;
+    }
+
+    @Override
+    public Object execute(Object[] args, KSExecutionSession session) throws Exception {
+        // Usage:
+        //   Await {{task}}
+        // Waits for a task started with Asynchronize and returns its result, rethrowing its failure
+        if (args == null || args.length != 1) {
+            throw new RuntimeException("Await requires 1 argument: {{task}}");
+        }
+        return join(args[0]);
+    }
+
+    static Object join(Object handle) throws InterruptedException {
+        if (handle instanceof AsyncTaskObject task) {
+            return task.join();
+        }
+        if (handle instanceof Future<?> future) {
+            try {
+                return future.get();
+            } catch (ExecutionException e) {
+                throw new RuntimeException("Asynchronous task failed", e.getCause());
+            }
+        }
+        throw new RuntimeException("Await requires a task handle, got: " + (handle == null ? "null" : handle.getClass().getName()));
+    }
+
+    static void cancel(Object handle) {
+        if (handle instanceof AsyncTaskObject task) {
+            task.cancel();
+        } else if (handle instanceof Future<?> future) {
+            future.cancel(true);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package org.kynesys.ksscripting.commands;
+
+import org.kynesys.lwks.KSExecutionSession;
+import org.kynesys.lwks.KSScriptingExecutable;
+import org.kynesys.lwks.KSTaskScope;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+public class AwaitAll implements KSScriptingExecutable {
+
+    @Override
+    public String returnType() {
+        return ArrayList.class.getName();
+    }
+
+    @Override
+    public boolean isStateless() {
+        return true;
+    }
+
+    @Override
+    public Object execute(Object[] args, KSExecutionSession session) throws Exception {
+        // Usage:
+        //   AwaitAll {{list of tasks}}
+        //   AwaitAll {{task}} {{task}} ...
+        // Returns the results in the given order. The first failure cancels the remaining tasks and is rethrown.
+        if (args == null || args.length < 1) {
+            throw new RuntimeException("AwaitAll requires a list of tasks or at least one task");
+        }
+
+        List<Object> handles = new ArrayList<>();
+        if (args.length == 1 && args[0] instanceof Collection<?> collection) {
+            handles.addAll(collection);
+        } else if (args.length == 1 && args[0] instanceof Object[] array) {
+            handles.addAll(Arrays.asList(array));
+        } else {
+            handles.addAll(Arrays.asList(args));
+        }
+
+        try (KSTaskScope scope = new KSTaskScope()) {
+            for (Object handle : handles) {
+                scope.fork(() -> Await.join(handle));
+            }
+            return new ArrayList<>(scope.joinAll());
+        } catch (Exception e) {
+            for (Object handle : handles) {
+                Await.cancel(handle);
+            }
+            throw e;
+        }
+    }
+}
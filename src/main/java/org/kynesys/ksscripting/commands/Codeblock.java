@@ -7,6 +7,7 @@ import org.kynesys.lwks.KSExecutionSession;
 import org.kynesys.lwks.KSScriptingExecutable;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 @Getter
@@ -14,6 +15,7 @@ public class Codeblock implements KSScriptingExecutable {
 
     private final boolean preprocessingInterpreterWhitelistEnabled = true;
     private final int[] preprocessingInterpreterWhitelist = new int[]{0, 1}; // 0: name, 1: action
+    private final boolean stateless = true;
 
     @Override
     public String returnType() {
@@ -63,21 +65,7 @@ public class Codeblock implements KSScriptingExecutable {
                 if (args.length < 3) {
                     throw new RuntimeException("Codeblock add requires at least 3 arguments: <name> add <code>");
                 }
-                StringBuilder code = new StringBuilder();
-                for (int i = 2; i < args.length; i++) {
-                    Object arg = args[i];
-                    if (arg instanceof String) {
-                        code.append(arg);
-                    } else if (arg instanceof Number) {
-                        code.append(arg);
-                    } else {
-                        code.append(arg.getClass().getName()).append(": ").append(arg);
-                    }
-                    if (i < args.length - 1) {
-                        code.append(" ");
-                    }
-                }
-                codeBlock.addCodeLine(code.toString());
+                codeBlock.addCodeLine(Arrays.copyOfRange(args, 2, args.length));
                 return codeBlock;
             }
             case "run" -> {
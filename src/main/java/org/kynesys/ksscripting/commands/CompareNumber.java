@@ -1,15 +1,28 @@
 package org.kynesys.ksscripting.commands;
 
+import org.kynesys.ksscripting.numeric.NumericKernels;
 import org.kynesys.ksscripting.types.Bool;
 import org.kynesys.lwks.KSExecutionSession;
 import org.kynesys.lwks.KSScriptingExecutable;
 
+import java.math.BigDecimal;
+
 public class CompareNumber implements KSScriptingExecutable {
     @Override
     public String returnType() {
         return Bool.class.getName();
     }
 
+    @Override
+    public boolean isStateless() {
+        return true;
+    }
+
+    @Override
+    public boolean isPure() {
+        return true;
+    }
+
     @Override
     public Object execute(Object[] args, KSExecutionSession session) throws Exception {
         // Usage:
@@ -21,10 +34,15 @@ public class CompareNumber implements KSScriptingExecutable {
         Object arg1 = args[0];
         Object arg2 = args[2];
         String operator = (String) args[1];
-        if (arg1 instanceof Number && arg2 instanceof Number) {
-            double num1 = ((Number) arg1).doubleValue();
-            double num2 = ((Number) arg2).doubleValue();
-            return compare(num1, operator, num2);
+        if (arg1 instanceof Number num1 && arg2 instanceof Number num2) {
+            // Whole numbers are compared as longs, so large values do not collide after rounding to double
+            if (isIntegral(num1) && isIntegral(num2)) {
+                return compare(Long.compare(num1.longValue(), num2.longValue()), operator);
+            }
+            if (num1 instanceof BigDecimal || num2 instanceof BigDecimal || isIntegral(num1) != isIntegral(num2)) {
+                return compareExact(num1, operator, num2);
+            }
+            return compare(num1.doubleValue(), operator, num2.doubleValue());
         } else {
             throw new RuntimeException("CompareNumber requires two numbers as arguments");
         }
@@ -41,4 +59,33 @@ public class CompareNumber implements KSScriptingExecutable {
             default -> throw new RuntimeException("Invalid operator. Expected any of ==, !=, <, <=, >, >= but got: " + operator);
         };
     }
+
+    // Applies the operator to a compareTo style result
+    public static boolean compare(int comparison, String operator) {
+        return switch (operator) {
+            case "==" -> comparison == 0;
+            case "!=" -> comparison != 0;
+            case "<" -> comparison < 0;
+            case "<=" -> comparison <= 0;
+            case ">" -> comparison > 0;
+            case ">=" -> comparison >= 0;
+            default -> throw new RuntimeException("Invalid operator. Expected any of ==, !=, <, <=, >, >= but got: " + operator);
+        };
+    }
+
+    // Mixed whole/fractional or BigDecimal operands, compared without rounding; NaN and infinities keep double semantics
+    private static boolean compareExact(Number num1, String operator, Number num2) {
+        if (!isFinite(num1) || !isFinite(num2)) {
+            return compare(num1.doubleValue(), operator, num2.doubleValue());
+        }
+        return compare(NumericKernels.toBigDecimal(num1).compareTo(NumericKernels.toBigDecimal(num2)), operator);
+    }
+
+    private static boolean isIntegral(Number number) {
+        return number instanceof Integer || number instanceof Long || number instanceof Short || number instanceof Byte;
+    }
+
+    private static boolean isFinite(Number number) {
+        return !(number instanceof Double || number instanceof Float) || Double.isFinite(number.doubleValue());
+    }
 }
@@ -11,6 +11,11 @@ public class Delay implements KSScriptingExecutable {
         return KSScriptingNull.class.getName();
     }
 
+    @Override
+    public boolean isStateless() {
+        return true;
+    }
+
     @Override
     public Object execute(Object[] args, KSExecutionSession session) throws Exception {
         // Usage: Delay <milliseconds>
@@ -1,9 +1,11 @@
 package org.kynesys.ksscripting.commands;
 
 import org.kynesys.ksscripting.objects.KSScriptingNull;
+import org.kynesys.ksscripting.objects.RangeObject;
 import org.kynesys.lwks.KSExecutionSession;
 import org.kynesys.lwks.KSScriptingExecutable;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 
@@ -13,6 +15,11 @@ public class DropItemFromIterable implements KSScriptingExecutable {
         return Object.class.getName();
     }
 
+    @Override
+    public boolean isStateless() {
+        return true;
+    }
+
     @Override
     public Object execute(Object[] args, KSExecutionSession session) throws Exception {
         // Usage: DropItemFromIterable <iterable> <index>
@@ -44,7 +51,7 @@ public class DropItemFromIterable implements KSScriptingExecutable {
 
         if (iterable instanceof List<?>) {
             // Make a copy of the list to avoid modifying the original
-            List<Object> newList = ((List<Object>) iterable).getClass().newInstance();
+            List<Object> newList = iterable instanceof RangeObject ? new ArrayList<>() : ((List<Object>) iterable).getClass().newInstance();
             newList.addAll((List<Object>) iterable);
             if (indexValue < 0 || indexValue >= newList.size()) {
                 throw new IndexOutOfBoundsException("Index out of bounds: " + indexValue);
@@ -12,6 +12,11 @@ public class DropItemFromMap implements KSScriptingExecutable {
         return Map.class.getName();
     }
 
+    @Override
+    public boolean isStateless() {
+        return true;
+    }
+
     @Override
     public Object execute(Object[] args, KSExecutionSession session) throws Exception {
         // Usage: DropItemFromMap <map> <key>
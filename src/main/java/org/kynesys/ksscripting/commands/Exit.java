@@ -10,10 +10,14 @@ public class Exit implements KSScriptingExecutable {
         return KSScriptingNull.class.getName();
     }
 
+    @Override
+    public boolean isStateless() {
+        return true;
+    }
+
     @Override
     public Object execute(Object[] args, KSExecutionSession session) throws Exception {
-        session.setSessionTerminated(true);
-        session.setTerminatingValue(args.length > 0 ? args[0] : new KSScriptingNull());
+        session.terminate(args.length > 0 ? args[0] : new KSScriptingNull());
         return session.getTerminatingValue();
     }
 }
@@ -2,20 +2,27 @@ package org.kynesys.ksscripting.commands;
 
 import lombok.Getter;
 import org.kynesys.ksscripting.objects.KSScriptingNull;
+import org.kynesys.ksscripting.objects.RangeObject;
 
 import org.kynesys.ksscripting.KSScriptingInterpreter;
+import org.kynesys.ksscripting.compiler.CommandNode;
+import org.kynesys.ksscripting.compiler.KSScriptingCompiler;
+import org.kynesys.lwks.KSCallSite;
 import org.kynesys.lwks.KSExecutionSession;
 import org.kynesys.lwks.KSScriptingExecutable;
 
-import java.util.ArrayList;
-import java.util.Collections;
+import java.lang.reflect.Array;
+import java.util.Iterator;
 import java.util.List;
+import java.util.RandomAccess;
+import java.util.stream.Stream;
 
 @Getter
 public class For implements KSScriptingExecutable {
 
     private final boolean preprocessingInterpreterWhitelistEnabled = true;
     private final int[] preprocessingInterpreterWhitelist = new int[]{2}; // 0: varname, 1: "in", 2: iterable, 3...n: command
+    private final boolean stateless = true;
 
     @Override
     public String returnType() {
@@ -24,6 +31,11 @@ public class For implements KSScriptingExecutable {
 
     @Override
     public Object execute(Object[] args, KSExecutionSession session) throws Exception {
+        return execute(args, session, null);
+    }
+
+    @Override
+    public Object execute(Object[] args, KSExecutionSession session, KSCallSite site) throws Exception {
         // Usage:
         //  For <varname> in <iterable> <command..>
 
@@ -34,45 +46,62 @@ public class For implements KSScriptingExecutable {
 
         String varName = (String) args[0];
         Object iterable = args[2];
-        StringBuilder command = new StringBuilder();
-        for (int i = 3; i < args.length; i++) {
-            Object arg = args[i];
-            if (arg instanceof String) {
-                command.append(arg);
-            } else if (arg instanceof Number) {
-                command.append(arg);
-            } else {
-                command.append(arg.getClass().getName()).append(": ").append(arg);
+        CommandNode command = KSScriptingCompiler.compileBody(args, 3, site);
+
+        // Execute command for each value, iterating the source in place; the loop variable lives in its own scope
+        KSExecutionSession scope = session.createScope(varName);
+        switch (iterable) {
+            case RangeObject range -> {
+                int length = range.size();
+                for (int i = 0; i < length; i++) {
+                    runBody(range.getInt(i), command, scope);
+                }
             }
-            if (i < args.length - 1) {
-                command.append(" ");
+            case List<?> list when list instanceof RandomAccess -> {
+                for (int i = 0; i < list.size(); i++) {
+                    runBody(list.get(i), command, scope);
+                }
+            }
+            case java.lang.Iterable<?> values -> {
+                for (Object o : values) {
+                    runBody(o, command, scope);
+                }
+            }
+            case Iterator<?> iterator -> {
+                while (iterator.hasNext()) {
+                    runBody(iterator.next(), command, scope);
+                }
+            }
+            case Stream<?> stream -> {
+                try (stream) {
+                    Iterator<?> iterator = stream.iterator();
+                    while (iterator.hasNext()) {
+                        runBody(iterator.next(), command, scope);
+                    }
+                }
+            }
+            case Object[] array -> {
+                for (Object o : array) {
+                    runBody(o, command, scope);
+                }
+            }
+            case null, default -> {
+                if (iterable == null || !iterable.getClass().isArray()) {
+                    throw new RuntimeException("For requires an Iterable, Iterator, Stream or array as the iterable argument");
+                }
+                // Primitive arrays
+                int length = Array.getLength(iterable);
+                for (int i = 0; i < length; i++) {
+                    runBody(Array.get(iterable, i), command, scope);
+                }
             }
         }
 
-        // Check if iterable is a valid type
-        if (!(iterable instanceof java.util.List<?> || iterable instanceof Object[])) {
-            throw new RuntimeException("ForIn requires a List, or Object[] as the second argument");
-        }
-
-        // Convert to iterable as list or an array
-        List<Object> list = new ArrayList<>();
-        if (iterable instanceof List<?> listIterable) {
-            list.addAll(listIterable);
-        }
-        else {
-            Object[] array = (Object[]) iterable;
-            Collections.addAll(list, array);
-        }
-
-        // Execute command for each value in the range
-        Object originalValue = session.getComplexVariable(varName);
-        for (Object o : list) {
-            session.setComplexVariable(varName, o);
-            // Execute the command
-            KSScriptingInterpreter.executeLine(command.toString(), session);
-        }
-        // Restore original value
-        session.setComplexVariable(varName, originalValue);
         return new KSScriptingNull();
     }
+
+    private static void runBody(Object value, CommandNode command, KSExecutionSession session) {
+        session.setLocal(0, value);
+        KSScriptingInterpreter.execute(command, session);
+    }
 }
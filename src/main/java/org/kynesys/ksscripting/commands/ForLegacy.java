@@ -2,15 +2,20 @@ package org.kynesys.ksscripting.commands;
 
 import lombok.Getter;
 import org.kynesys.ksscripting.objects.KSScriptingNull;
+import org.kynesys.lwks.KSCallSite;
 import org.kynesys.lwks.KSExecutionSession;
 import org.kynesys.lwks.KSScriptingExecutable;
 import org.kynesys.ksscripting.KSScriptingInterpreter;
+import org.kynesys.ksscripting.compiler.CommandNode;
+import org.kynesys.ksscripting.compiler.KSScriptingCompiler;
+
 
 @Getter
 public class ForLegacy implements KSScriptingExecutable {
 
     private final boolean preprocessingInterpreterWhitelistEnabled = true;
     private final int[] preprocessingInterpreterWhitelist = new int[]{2, 3, 4}; // 0: varname, 1: "in", 2: start, 3: end, 4: step, 5...n: command
+    private final boolean stateless = true;
 
     @Override
     public String returnType() {
@@ -19,6 +24,11 @@ public class ForLegacy implements KSScriptingExecutable {
 
     @Override
     public Object execute(Object[] args, KSExecutionSession session) throws Exception {
+        return execute(args, session, null);
+    }
+
+    @Override
+    public Object execute(Object[] args, KSExecutionSession session, KSCallSite site) throws Exception {
         // Usage:
         //  For <varname> in 0 10 1 <command..>
         //
@@ -37,30 +47,15 @@ public class ForLegacy implements KSScriptingExecutable {
         int end = Integer.parseInt(endStr);
         int step = Integer.parseInt(stepStr);
 
-        StringBuilder command = new StringBuilder();
-        for (int i = 5; i < args.length; i++) {
-            Object arg = args[i];
-            if (arg instanceof String) {
-                command.append(arg);
-            } else if (arg instanceof Number) {
-                command.append(arg);
-            } else {
-                command.append(arg.getClass().getName()).append(": ").append(arg);
-            }
-            if (i < args.length - 1) {
-                command.append(" ");
-            }
-        }
+        CommandNode command = KSScriptingCompiler.compileBody(args, 5, site);
 
-        // Execute command for each value in the range
-        Object originalValue = session.getComplexVariable(varName);
+        // Execute command for each value in the range; the loop variable lives in its own scope
+        KSExecutionSession scope = session.createScope(varName);
         for (int i = start; i < end; i+=step) {
-            session.setComplexVariable(varName, i);
+            scope.setLocal(0, i);
             // Execute the command
-            KSScriptingInterpreter.executeLine(command.toString(), session);
+            KSScriptingInterpreter.execute(command, scope);
         }
-        // Restore original value
-        session.setComplexVariable(varName, originalValue);
         return new KSScriptingNull();
     }
 }
@@ -10,6 +10,11 @@ public class FreeValue implements KSScriptingExecutable {
         return KSScriptingNull.class.getName();
     }
 
+    @Override
+    public boolean isStateless() {
+        return true;
+    }
+
     @Override
     public Object execute(Object[] args, KSExecutionSession session) throws Exception {
         // Usage: FreeValue <variable name>, <variable name>, ...
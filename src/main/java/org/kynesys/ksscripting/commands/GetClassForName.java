@@ -10,6 +10,11 @@ public class GetClassForName implements KSScriptingExecutable {
         return Class.class.getName();
     }
 
+    @Override
+    public boolean isStateless() {
+        return true;
+    }
+
     @Override
     public Object execute(Object[] args, KSExecutionSession session) throws Exception {
         // Usage:
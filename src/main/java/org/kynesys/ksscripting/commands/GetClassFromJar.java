@@ -9,6 +9,11 @@ public class GetClassFromJar implements KSScriptingExecutable {
         return Class.class.getName();
     }
 
+    @Override
+    public boolean isStateless() {
+        return true;
+    }
+
     @Override
     public Object execute(Object[] args, KSExecutionSession session) throws Exception {
         // Usage:
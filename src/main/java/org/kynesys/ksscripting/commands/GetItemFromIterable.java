@@ -9,6 +9,11 @@ public class GetItemFromIterable implements KSScriptingExecutable {
         return Object.class.getName();
     }
 
+    @Override
+    public boolean isStateless() {
+        return true;
+    }
+
     @Override
     public Object execute(Object[] args, KSExecutionSession session) throws Exception {
         if (args == null || args.length != 2) {
@@ -12,6 +12,11 @@ public class HostInfo implements KSScriptingExecutable {
         return Map.class.getName();
     }
 
+    @Override
+    public boolean isStateless() {
+        return true;
+    }
+
     @Override
     public Object execute(Object[] args, KSExecutionSession session) throws Exception {
         Map<String, String> hostInfo = new HashMap<>();
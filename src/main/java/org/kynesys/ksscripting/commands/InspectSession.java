@@ -10,6 +10,11 @@ public class InspectSession implements KSScriptingExecutable {
         return KSScriptingNull.class.getName();
     }
 
+    @Override
+    public boolean isStateless() {
+        return true;
+    }
+
     @Override
     public Object execute(Object[] args, KSExecutionSession session) throws Exception {
         System.out.println("Last Result: " + session.getLastResult());
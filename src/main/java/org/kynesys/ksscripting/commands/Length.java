@@ -11,6 +11,16 @@ public class Length implements KSScriptingExecutable {
         return Integer.class.getName();
     }
 
+    @Override
+    public boolean isStateless() {
+        return true;
+    }
+
+    @Override
+    public boolean isPure() {
+        return true;
+    }
+
     @Override
     public Object execute(Object[] args, KSExecutionSession session) throws Exception {
         if (args == null || args.length != 1) {
@@ -1,5 +1,8 @@
 package org.kynesys.ksscripting.commands;
 
+import org.kynesys.ksscripting.invoke.InvocationCache;
+import org.kynesys.ksscripting.invoke.PreparedInvocation;
+import org.kynesys.lwks.KSCommandRegistry;
 import org.kynesys.lwks.KSExecutionSession;
 import org.kynesys.lwks.KSScriptingExecutable;
 
@@ -9,6 +12,11 @@ public class NewObject implements KSScriptingExecutable {
         return Object.class.getName();
     }
 
+    @Override
+    public boolean isStateless() {
+        return true;
+    }
+
     @Override
     public Object execute(Object[] args, KSExecutionSession session) throws Exception {
         // Usage:
@@ -19,25 +27,23 @@ public class NewObject implements KSScriptingExecutable {
             throw new IllegalArgumentException("Class name is required");
         }
         String className = (String) args[0];
-        Class<?> clazz;
-        try {
-            clazz = Class.forName(className);
-        } catch (ClassNotFoundException e) {
-            throw new IllegalArgumentException("Class not found: " + className, e);
+        Class<?> clazz = KSCommandRegistry.findClass(className);
+        if (clazz == null) {
+            throw new IllegalArgumentException("Class not found: " + className);
         }
-        Class<?>[] argTypes = new Class[args.length - 1];
         Object[] argValues = new Object[args.length - 1];
-        for (int i = 1; i < args.length; i++) {
-            argTypes[i - 1] = args[i].getClass();
-            argValues[i - 1] = args[i];
+        System.arraycopy(args, 1, argValues, 0, args.length - 1);
+
+        PreparedInvocation constructor = InvocationCache.constructor(clazz, argValues);
+        if (constructor == null) {
+            throw new IllegalArgumentException("Constructor not found for class: " + className);
         }
 
         try {
-            java.lang.reflect.Constructor<?> constructor = clazz.getConstructor(argTypes);
-            return constructor.newInstance(argValues);
-        } catch (NoSuchMethodException e) {
-            throw new IllegalArgumentException("Constructor not found for class: " + className, e);
-        } catch (java.lang.reflect.InvocationTargetException | InstantiationException | IllegalAccessException e) {
+            return constructor.invoke(null, argValues);
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable e) {
             throw new RuntimeException("Failed to create instance of class: " + className, e);
         }
     }
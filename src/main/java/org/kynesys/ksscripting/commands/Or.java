@@ -10,6 +10,16 @@ public class Or implements KSScriptingExecutable {
         return Bool.class.getName();
     }
 
+    @Override
+    public boolean isStateless() {
+        return true;
+    }
+
+    @Override
+    public boolean isPure() {
+        return true;
+    }
+
     @Override
     public Object execute(Object[] args, KSExecutionSession session) throws Exception {
         // Usage: Or <condition1> <condition2> ...
@@ -0,0 +1,66 @@
+package org.kynesys.ksscripting.commands;
+
+import lombok.Getter;
+import org.kynesys.ksscripting.KSScriptingInterpreter;
+import org.kynesys.ksscripting.compiler.CommandNode;
+import org.kynesys.ksscripting.compiler.KSScriptingCompiler;
+import org.kynesys.lwks.KSCallSite;
+import org.kynesys.lwks.KSExecutionSession;
+import org.kynesys.lwks.KSScriptingExecutable;
+import org.kynesys.lwks.KSTaskScope;
+
+import java.util.ArrayList;
+
+@Getter
+public class Parallel implements KSScriptingExecutable {
+
+    private final boolean preprocessingInterpreterWhitelistEnabled = true;
+    private final int[] preprocessingInterpreterWhitelist = new int[]{0}; // 0: concurrency, 1...n: commands
+    private final boolean stateless = true;
+
+    @Override
+    public String returnType() {
+        return ArrayList.class.getName();
+    }
+
+    @Override
+    public Object execute(Object[] args, KSExecutionSession session) throws Exception {
+        return execute(args, session, null);
+    }
+
+    @Override
+    public Object execute(Object[] args, KSExecutionSession session, KSCallSite site) throws Exception {
+        // Usage:
+        //   Parallel <max concurrency> {command} {command} ...
+        // ex. Parallel 4 {HttpGet a} {HttpGet b} {Math add 1 2}
+        // Runs the commands concurrently and returns their results in order. The first failure cancels the rest and is rethrown.
+        if (args == null || args.length < 2) {
+            throw new RuntimeException("Parallel requires at least 2 arguments: <max concurrency> {command} ...");
+        }
+
+        int concurrency;
+        try {
+            concurrency = args[0] instanceof Number number ? number.intValue() : Integer.parseInt(args[0].toString());
+        } catch (NumberFormatException e) {
+            throw new RuntimeException("Parallel concurrency must be a number, got: " + args[0]);
+        }
+
+        CommandNode[] commands = new CommandNode[args.length - 1];
+        for (int i = 1; i < args.length; i++) {
+            if (!(args[i] instanceof String line)) {
+                throw new RuntimeException("Parallel command " + i + " must be a {command}");
+            }
+            if (line.startsWith("{") && line.endsWith("}")) {
+                line = line.substring(1, line.length() - 1);
+            }
+            commands[i - 1] = KSScriptingCompiler.getCachedLine(line);
+        }
+
+        try (KSTaskScope scope = new KSTaskScope(concurrency)) {
+            for (CommandNode command : commands) {
+                scope.fork(() -> KSScriptingInterpreter.execute(command, session));
+            }
+            return new ArrayList<>(scope.joinAll());
+        }
+    }
+}
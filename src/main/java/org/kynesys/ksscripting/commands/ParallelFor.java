@@ -0,0 +1,206 @@
+package org.kynesys.ksscripting.commands;
+
+import lombok.Getter;
+import org.kynesys.ksscripting.KSScriptingInterpreter;
+import org.kynesys.ksscripting.compiler.CommandNode;
+import org.kynesys.ksscripting.compiler.KSScriptingCompiler;
+import org.kynesys.ksscripting.objects.KSScriptingNull;
+import org.kynesys.lwks.KSCallSite;
+import org.kynesys.lwks.KSExecutionSession;
+import org.kynesys.lwks.KSScriptingExecutable;
+import org.kynesys.lwks.KSTaskScope;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.Stream;
+
+@Getter
+public class ParallelFor implements KSScriptingExecutable {
+
+    private static final int MAX_THREADS = 256;
+
+    private final boolean preprocessingInterpreterWhitelistEnabled = true;
+    private final int[] preprocessingInterpreterWhitelist = new int[]{2, 3}; // 0: varname, 1: "in", 2: iterable, 3: [threads], then [collect], then command
+    private final boolean stateless = true;
+
+    @Override
+    public String returnType() {
+        return Object.class.getName();
+    }
+
+    @Override
+    public Object execute(Object[] args, KSExecutionSession session) throws Exception {
+        return execute(args, session, null);
+    }
+
+    @Override
+    public Object execute(Object[] args, KSExecutionSession session, KSCallSite site) throws Exception {
+        // Usage:
+        //  ParallelFor <varname> in <iterable> [threads | virtual] [collect] <command..>
+        // Each worker has its own loop variable; like For, every other write goes to the session, so concurrent writes to one variable race.
+        // threads: ForkJoinPool parallelism, at most 256 (default: the common pool); virtual: one virtual thread per item, for blocking bodies
+        // collect: return the per-item results as a list in iteration order
+
+
+        if (args == null || args.length < 4) {
+            throw new RuntimeException("ParallelFor requires at least 4 arguments");
+        }
+
+        String varName = (String) args[0];
+        List<?> items = toList(args[2]);
+
+        int index = 3;
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean ownPool = true;
+        boolean virtual = false;
+        if (args[index] instanceof Number number) {
+            threads = number.intValue();
+            index++;
+        } else if (args[index] instanceof String option && option.matches("\\d+")) {
+            threads = Integer.parseInt(option);
+            index++;
+        } else if ("virtual".equals(args[index])) {
+            virtual = true;
+            index++;
+        } else {
+            ownPool = false;
+        }
+        if (threads < 1) {
+            throw new RuntimeException("ParallelFor requires at least 1 thread");
+        }
+        if (threads > MAX_THREADS) {
+            throw new RuntimeException("ParallelFor allows at most " + MAX_THREADS + " threads; use virtual for blocking commands");
+        }
+        boolean collect = false;
+        if (index < args.length && "collect".equals(args[index])) {
+            collect = true;
+            index++;
+        }
+        if (index >= args.length) {
+            throw new RuntimeException("ParallelFor requires a command");
+        }
+        CommandNode command = KSScriptingCompiler.compileBody(args, index, site);
+
+        Object[] results = collect ? new Object[items.size()] : null;
+        if (virtual) {
+            try (KSTaskScope scope = new KSTaskScope()) {
+                for (int i = 0; i < items.size(); i++) {
+                    int item = i;
+                    scope.fork(() -> {
+                        runRange(items, item, item + 1, command, session.createScope(varName), results);
+                        return null;
+                    });
+                }
+                scope.joinAll();
+            }
+        } else {
+            // A few chunks per thread keeps workers busy when iterations take uneven time
+            int chunk = java.lang.Math.max(1, items.size() / (threads * 4));
+            Chunk all = new Chunk(items, 0, items.size(), chunk, varName, command, session, results);
+            if (ownPool) {
+                // A pool sized for this call only; closing it waits for its workers
+                try (ForkJoinPool pool = new ForkJoinPool(threads)) {
+                    pool.invoke(all);
+                }
+            } else {
+                ForkJoinPool.commonPool().invoke(all);
+            }
+        }
+
+        return collect ? new ArrayList<>(Arrays.asList(results)) : new KSScriptingNull();
+    }
+
+    private static void runRange(List<?> items, int from, int to, CommandNode command, KSExecutionSession worker, Object[] results) {
+        for (int i = from; i < to; i++) {
+            if (worker.isSessionTerminated()) {
+                return;
+            }
+            worker.setLocal(0, items.get(i));
+            Object result = KSScriptingInterpreter.execute(command, worker);
+            if (results != null) {
+                results[i] = result;
+            }
+        }
+    }
+
+    private static final class Chunk extends RecursiveAction {
+        private final List<?> items;
+        private final int from;
+        private final int to;
+        private final int chunk;
+        private final String varName;
+        private final CommandNode command;
+        private final KSExecutionSession session;
+        private final Object[] results;
+
+        Chunk(List<?> items, int from, int to, int chunk, String varName, CommandNode command, KSExecutionSession session, Object[] results) {
+            this.items = items;
+            this.from = from;
+            this.to = to;
+            this.chunk = chunk;
+            this.varName = varName;
+            this.command = command;
+            this.session = session;
+            this.results = results;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= chunk) {
+                runRange(items, from, to, command, session.createScope(varName), results);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new Chunk(items, from, middle, chunk, varName, command, session, results),
+                    new Chunk(items, middle, to, chunk, varName, command, session, results));
+        }
+    }
+
+    // Random access view of the iterable; lists that already support it (including ranges) are used as they are
+    private static List<?> toList(Object iterable) {
+        switch (iterable) {
+            case List<?> list when list instanceof RandomAccess -> {
+                return list;
+            }
+            case Collection<?> collection -> {
+                return new ArrayList<>(collection);
+            }
+            case java.lang.Iterable<?> values -> {
+                List<Object> list = new ArrayList<>();
+                values.forEach(list::add);
+                return list;
+            }
+            case Iterator<?> iterator -> {
+                List<Object> list = new ArrayList<>();
+                iterator.forEachRemaining(list::add);
+                return list;
+            }
+            case Stream<?> stream -> {
+                try (stream) {
+                    return stream.toList();
+                }
+            }
+            case Object[] array -> {
+                return Arrays.asList(array);
+            }
+            case null, default -> {
+                if (iterable == null || !iterable.getClass().isArray()) {
+                    throw new RuntimeException("ParallelFor requires an Iterable, Iterator, Stream or array as the iterable argument");
+                }
+                int length = Array.getLength(iterable);
+                List<Object> list = new ArrayList<>(length);
+                for (int i = 0; i < length; i++) {
+                    list.add(Array.get(iterable, i));
+                }
+                return list;
+            }
+        }
+    }
+}
@@ -9,6 +9,11 @@ public class Print implements KSScriptingExecutable {
         return String.class.getName();
     }
 
+    @Override
+    public boolean isStateless() {
+        return true;
+    }
+
     @Override
     public Object execute(Object[] args, KSExecutionSession session) throws Exception {
         StringBuilder sb = new StringBuilder();
@@ -0,0 +1,61 @@
+package org.kynesys.ksscripting.commands;
+
+import org.kynesys.ksscripting.objects.KSScriptingNull;
+import org.kynesys.lwks.KSExecutionSession;
+import org.kynesys.lwks.KSProfiler;
+import org.kynesys.lwks.KSScriptingExecutable;
+
+import java.io.File;
+
+public class Profile implements KSScriptingExecutable {
+    @Override
+    public String returnType() {
+        return Object.class.getName();
+    }
+
+    @Override
+    public boolean isStateless() {
+        return true;
+    }
+
+    @Override
+    public Object execute(Object[] args, KSExecutionSession session) throws Exception {
+        // Usage:
+        //   Profile start
+        //   Profile stop
+        //   Profile reset
+        //   Profile report [max rows]       -> returns the report as a string
+        //   Profile commands                -> returns the per command class entries
+        //   Profile lines                   -> returns the per line entries
+        //   Profile dump <file>             -> writes collapsed stacks for flame graph tools
+
+        if (args.length < 1 || !(args[0] instanceof String action)) {
+            throw new IllegalArgumentException("Required parameter: <action | start, stop, reset, report, commands, lines, dump>");
+        }
+
+        KSProfiler profiler = session.getProfiler();
+        switch (action) {
+            case "start" -> profiler.start();
+            case "stop" -> profiler.stop();
+            case "reset" -> profiler.reset();
+            case "report" -> {
+                int limit = args.length > 1 ? Integer.parseInt(args[1].toString()) : 20;
+                return profiler.report(limit);
+            }
+            case "commands" -> {
+                return profiler.getCommandEntries();
+            }
+            case "lines" -> {
+                return profiler.getLineEntries();
+            }
+            case "dump" -> {
+                if (args.length < 2) {
+                    throw new IllegalArgumentException("Profile dump requires a file path");
+                }
+                profiler.writeCollapsedStacks(new File(args[1].toString()));
+            }
+            default -> throw new IllegalArgumentException("Unknown action: " + action);
+        }
+        return new KSScriptingNull();
+    }
+}
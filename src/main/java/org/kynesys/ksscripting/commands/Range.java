@@ -1,9 +1,9 @@
 package org.kynesys.ksscripting.commands;
 
+import org.kynesys.ksscripting.objects.RangeObject;
 import org.kynesys.lwks.KSExecutionSession;
 import org.kynesys.lwks.KSScriptingExecutable;
 
-import java.util.ArrayList;
 import java.util.List;
 
 public class Range implements KSScriptingExecutable {
@@ -29,6 +29,11 @@ public class Range implements KSScriptingExecutable {
         return value;
     }
 
+    @Override
+    public boolean isStateless() {
+        return true;
+    }
+
     @Override
     public Object execute(Object[] args, KSExecutionSession session) throws Exception {
         // Usage:
@@ -64,16 +69,6 @@ public class Range implements KSScriptingExecutable {
             throw new RuntimeException("Step is positive but start is greater than end");
         }
 
-        List<Object> result = new ArrayList<>();
-        if (step > 0) {
-            for (int i = start; i < end; i += step) {
-                result.add(i);
-            }
-        } else {
-            for (int i = start; i > end; i += step) {
-                result.add(i);
-            }
-        }
-        return result;
+        return new RangeObject(start, end, step);
     }
 }
@@ -1,15 +1,18 @@
 package org.kynesys.ksscripting.commands;
 
 import lombok.Getter;
+import org.kynesys.lwks.KSCallSite;
 import org.kynesys.lwks.KSExecutionSession;
 import org.kynesys.lwks.KSScriptingExecutable;
 import org.kynesys.ksscripting.KSScriptingInterpreter;
+import org.kynesys.ksscripting.compiler.KSScriptingCompiler;
 
 @Getter
 public class RunIf implements KSScriptingExecutable {
 
     private final boolean preprocessingInterpreterWhitelistEnabled = true;
     private final int[] preprocessingInterpreterWhitelist = new int[]{0}; // 0: condition
+    private final boolean stateless = true;
 
     @Override
     public String returnType() {
@@ -18,6 +21,11 @@ public class RunIf implements KSScriptingExecutable {
 
     @Override
     public Object execute(Object[] args, KSExecutionSession session) throws Exception {
+        return execute(args, session, null);
+    }
+
+    @Override
+    public Object execute(Object[] args, KSExecutionSession session, KSCallSite site) throws Exception {
         // Usage:
         // RunIf <condition> <command to run if condition is true>
 
@@ -26,31 +34,18 @@ public class RunIf implements KSScriptingExecutable {
         }
 
         Object condition = args[0];
-        Object[] commandParts = new Object[args.length - 1];
-        System.arraycopy(args, 1, commandParts, 0, args.length - 1);
-
-        // Build line
-        StringBuilder line = new StringBuilder();
-        for (Object part : commandParts) {
-            if (part instanceof String) {
-                line.append(part).append(" ");
-            } else {
-                line.append(part.toString()).append(" ");
-            }
-        }
-//        System.out.println("RunIf: (" + condition + ") " + line.toString());
 
         if (condition instanceof Boolean) {
             if ((Boolean) condition) {
                 // Execute the command
-                return KSScriptingInterpreter.executeLine(line.toString(), session);
+                return KSScriptingInterpreter.execute(KSScriptingCompiler.compileBody(args, 1, site), session);
             } else {
                 return null; // Condition is false, do not execute the command
             }
         } else if (condition instanceof String) {
             if (Boolean.parseBoolean((String) condition)) {
                 // Execute the command
-                return KSScriptingInterpreter.executeLine(line.toString(), session);
+                return KSScriptingInterpreter.execute(KSScriptingCompiler.compileBody(args, 1, site), session);
             } else {
                 return null; // Condition is false, do not execute the command
             }
@@ -1,5 +1,8 @@
 package org.kynesys.ksscripting.commands;
 
+import org.kynesys.ksscripting.invoke.InvocationCache;
+import org.kynesys.ksscripting.invoke.PreparedInvocation;
+import org.kynesys.lwks.KSCommandRegistry;
 import org.kynesys.lwks.KSExecutionSession;
 import org.kynesys.lwks.KSScriptingExecutable;
 
@@ -9,32 +12,46 @@ public class StaticInvoke implements KSScriptingExecutable {
         return Object.class.getName();
     }
 
+    @Override
+    public boolean isStateless() {
+        return true;
+    }
+
     @Override
     public Object execute(Object[] args, KSExecutionSession session) throws Exception {
         // Usage:
         //   StaticInvoke {Class} <method name> <args...>
+        //   StaticInvoke <class name> <method name> <args...>
+        // ex. StaticInvoke java.lang.Integer parseInt 42
 
-        // Check if the first argument is a class
         if (args == null || args.length < 2) {
             throw new RuntimeException("StaticInvoke requires at least 2 arguments: {Class} <method name> <args...>");
         }
 
-        Class<?> clazz = (Class<?>) args[0];
+        Class<?> clazz = switch (args[0]) {
+            case Class<?> c -> c;
+            case String className -> {
+                Class<?> found = KSCommandRegistry.findClass(className);
+                if (found == null) {
+                    throw new RuntimeException("Class not found: " + className);
+                }
+                yield found;
+            }
+            case null, default -> throw new RuntimeException("StaticInvoke requires a Class or a class name as the first argument");
+        };
         String methodName = (String) args[1];
         Object[] methodArgs = new Object[args.length - 2];
-
         System.arraycopy(args, 2, methodArgs, 0, args.length - 2);
-        Class<?>[] argTypes = new Class<?>[methodArgs.length];
-        for (int i = 0; i < methodArgs.length; i++) {
-            argTypes[i] = methodArgs[i].getClass();
+
+        PreparedInvocation method = InvocationCache.staticMethod(clazz, methodName, methodArgs);
+        if (method == null) {
+            throw new RuntimeException("Method " + methodName + " not found in class " + clazz.getName());
         }
         try {
-            // Use reflection to invoke the method
-            java.lang.reflect.Method method = clazz.getMethod(methodName, argTypes);
             return method.invoke(null, methodArgs);
-        } catch (NoSuchMethodException e) {
-            throw new RuntimeException("Method " + methodName + " not found in class " + clazz.getName(), e);
-        } catch (IllegalAccessException | java.lang.reflect.InvocationTargetException e) {
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable e) {
             throw new RuntimeException("Failed to invoke method " + methodName + " on class " + clazz.getName(), e);
         }
     }
@@ -2,15 +2,20 @@ package org.kynesys.ksscripting.commands;
 
 import lombok.Getter;
 import org.kynesys.ksscripting.objects.KSScriptingNull;
+import org.kynesys.lwks.KSCallSite;
 import org.kynesys.lwks.KSExecutionSession;
 import org.kynesys.lwks.KSScriptingExecutable;
 import org.kynesys.ksscripting.KSScriptingInterpreter;
+import org.kynesys.ksscripting.compiler.CommandNode;
+import org.kynesys.ksscripting.compiler.KSScriptingCompiler;
+
 
 @Getter
 public class While implements KSScriptingExecutable {
 
     private final boolean preprocessingInterpreterWhitelistEnabled = true;
     private final int[] preprocessingInterpreterWhitelist = new int[]{}; // 0: condition, 1...n: command
+    private final boolean stateless = true;
 
     @Override
     public String returnType() {
@@ -19,6 +24,11 @@ public class While implements KSScriptingExecutable {
 
     @Override
     public Object execute(Object[] args, KSExecutionSession session) throws Exception {
+        return execute(args, session, null);
+    }
+
+    @Override
+    public Object execute(Object[] args, KSExecutionSession session, KSCallSite site) throws Exception {
         // Usage:
         //  While <condition> <command..>
 
@@ -28,38 +38,28 @@ public class While implements KSScriptingExecutable {
         }
 
         // Build command
-        StringBuilder command = new StringBuilder();
-        for (int i = 1; i < args.length; i++) {
-            Object arg = args[i];
-            if (arg instanceof String) {
-                command.append(arg);
-            } else if (arg instanceof Number) {
-                command.append(arg);
-            } else {
-                command.append(arg.getClass().getName()).append(": ").append(arg);
-            }
-            if (i < args.length - 1) {
-                command.append(" ");
+        CommandNode command = KSScriptingCompiler.compileBody(args, 1, site);
+
+        // Build condition
+        Object condition = args[0];
+        CommandNode conditionCommand = null;
+        if (condition instanceof String conditionLine) {
+            // If line starts with { and ends with }, it is a script
+            if (conditionLine.startsWith("{") && conditionLine.endsWith("}")) {
+                conditionLine = conditionLine.substring(1, conditionLine.length() - 1);
             }
+            conditionCommand = KSScriptingCompiler.getCachedLine(conditionLine);
         }
 
-
         while (true) {
             // Check condition
-            Object condition = args[0];
             if (condition instanceof Boolean) {
                 if (!(Boolean) condition) {
                     break; // Condition is false, exit the loop
                 }
-            } else if (condition instanceof String) {
+            } else if (conditionCommand != null) {
                 try {
-                    String conditionLine = condition.toString();
-                    // If line starts with { and ends with }, it is a script
-                    if (conditionLine.startsWith("{") && conditionLine.endsWith("}")) {
-                        conditionLine = conditionLine.substring(1, conditionLine.length() - 1);
-                    }
-//                    System.out.println("WhileCondition: " + conditionLine);
-                    boolean result = (boolean) KSScriptingInterpreter.executeLine(conditionLine, session);
+                    boolean result = (boolean) KSScriptingInterpreter.execute(conditionCommand, session);
                     if (!result) {
                         break; // Condition is false, exit the loop
                     }
@@ -72,7 +72,7 @@ public class While implements KSScriptingExecutable {
 
             // Execute the command
             try {
-                KSScriptingInterpreter.executeLine(command.toString(), session);
+                KSScriptingInterpreter.execute(command, session);
             } catch (Exception e) {
                 throw new RuntimeException("While command execution failed: " + e.getMessage());
             }
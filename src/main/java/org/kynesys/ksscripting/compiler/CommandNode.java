@@ -0,0 +1,107 @@
+package org.kynesys.ksscripting.compiler;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import org.kynesys.lwks.KSCallSite;
+import org.kynesys.lwks.KSResolvedCommand;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * One compiled command line: the command name followed by its argument nodes.
+ */
+@Getter
+public class CommandNode {
+
+    // Returned by getFoldedValue when there is no folded result to reuse
+    public static final Object NOT_FOLDED = new Object();
+
+    // Line without any part; executing it returns 1
+    public static final CommandNode EMPTY = new CommandNode(null, new Node[0], true);
+
+    private final Object commandPart;
+    private final Node[] arguments;
+    private final boolean empty;
+    private final boolean comment;
+    private final boolean constant; // every argument is an immutable literal or a constant {...}
+    private final KSCallSite callSite = new KSCallSite();
+    @Getter(AccessLevel.NONE)
+    private volatile FoldedResult folded;
+
+    public CommandNode(Object commandPart, Node[] arguments) {
+        this(commandPart, arguments, false);
+    }
+
+    private CommandNode(Object commandPart, Node[] arguments, boolean empty) {
+        this.commandPart = commandPart;
+        this.arguments = arguments;
+        this.empty = empty;
+        this.comment = commandPart instanceof String command && command.startsWith("//");
+        this.constant = !empty && !comment && commandPart instanceof String && isConstant(arguments);
+    }
+
+    // Result of an earlier run of a pure command on this line, or NOT_FOLDED if it was not folded for this command
+    public Object getFoldedValue(KSResolvedCommand command) {
+        FoldedResult result = folded;
+        return result != null && result.command == command ? result.value : NOT_FOLDED;
+    }
+
+    // Keeps the result of a pure command for later runs of this line; mutable results are not kept
+    public void fold(KSResolvedCommand command, Object value) {
+        if (constant && isImmutable(value)) {
+            folded = new FoldedResult(command, value);
+        }
+    }
+
+    private static boolean isConstant(Node[] arguments) {
+        for (Node argument : arguments) {
+            boolean constantArgument = switch (argument) {
+                case LiteralNode literal -> isImmutable(literal.getValue());
+                case SubcommandNode subcommand -> subcommand.getCommand().isConstant();
+                default -> false;
+            };
+            if (!constantArgument) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isImmutable(Object value) {
+        return value instanceof String || value instanceof Boolean || value instanceof Character
+                || value instanceof Integer || value instanceof Long || value instanceof Double || value instanceof Float
+                || value instanceof Short || value instanceof Byte || value instanceof BigDecimal || value instanceof BigInteger;
+    }
+
+    // Line as it would be written in a script, used for error messages only
+    public String getSource() {
+        StringBuilder lineBuilder = new StringBuilder();
+        if (commandPart != null) {
+            lineBuilder.append(commandPart).append(" ");
+        }
+        for (Node argument : arguments) {
+            Object part = argument.getRawValue();
+            if (part != null) {
+                lineBuilder.append(part).append(" ");
+            }
+        }
+        return lineBuilder.toString();
+    }
+
+    @Override
+    public String toString() {
+        return getSource().trim();
+    }
+
+    // The folded value is only valid for the command it came from, since the same compiled line can resolve differently per session
+    private static final class FoldedResult {
+        private final KSResolvedCommand command;
+        private final Object value;
+
+        private FoldedResult(KSResolvedCommand command, Object value) {
+            this.command = command;
+            this.value = value;
+        }
+    }
+}
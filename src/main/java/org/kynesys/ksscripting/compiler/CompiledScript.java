@@ -0,0 +1,38 @@
+package org.kynesys.ksscripting.compiler;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import org.kynesys.ksscripting.backend.CompiledHandles;
+
+/**
+ * Compiled form of a list of script lines.
+ * Index i holds line i + 1 of the source; null or empty source lines are kept as null so line numbers stay intact.
+ */
+@Getter
+public class CompiledScript {
+
+    private final String[] sourceLines;
+    private final CommandNode[] lines;
+
+    // Run count and MethodHandle form for the optional compiled backend; see HandleBackend
+    @Getter(AccessLevel.NONE) private int executions;
+    @Setter private volatile CompiledHandles compiledHandles;
+
+    public CompiledScript(String[] sourceLines, CommandNode[] lines) {
+        this.sourceLines = sourceLines;
+        this.lines = lines;
+    }
+
+    public int size() {
+        return lines.length;
+    }
+
+    // Counts one more run and returns the total; racy by design, it only has to reach a threshold eventually
+    public int countExecution() {
+        if (executions < Integer.MAX_VALUE) {
+            executions++;
+        }
+        return executions;
+    }
+}
@@ -0,0 +1,121 @@
+package org.kynesys.ksscripting.compiler;
+
+import org.kynesys.lwks.KSCallSite;
+import org.kynesys.lwks.KSStringController;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Turns script lines into node trees once, so the interpreter never tokenizes the same line twice.
+ */
+public class KSScriptingCompiler {
+
+    // Lines compiled through getCachedLine; cleared as a whole when it grows past the limit
+    private static final int LINE_CACHE_LIMIT = 4096;
+    private static final ConcurrentHashMap<String, CommandNode> lineCache = new ConcurrentHashMap<>();
+
+    public static CommandNode compileLine(String line) {
+        String[] linePartsInString = KSStringController.splitStringAsArguments(line);
+        Object[] lineParts = new Object[linePartsInString.length];
+        for (int i = 0; i < linePartsInString.length; i++) {
+            String part = linePartsInString[i];
+            if (part == null || part.isEmpty()) {
+                lineParts[i] = null;
+            } else {
+                lineParts[i] = part;
+            }
+        }
+        return compileParts(lineParts);
+    }
+
+    public static CommandNode compileParts(Object[] lineParts) {
+        if (lineParts.length == 0) {
+            return CommandNode.EMPTY;
+        }
+        Node[] arguments = new Node[lineParts.length - 1];
+        for (int i = 1; i < lineParts.length; i++) {
+            arguments[i - 1] = compilePart(lineParts[i]);
+        }
+        return new CommandNode(lineParts[0], arguments);
+    }
+
+    // Body of a command that runs the rest of its line (For, RunIf, ...): args[from...] compiled once per calling line.
+    // The node is kept on the caller's call site, so later calls reuse it (and its own call sites and folded values)
+    // as long as the raw parts are the same.
+    public static CommandNode compileBody(Object[] args, int from, KSCallSite site) {
+        if (site != null && site.getState() instanceof CompiledBody body && body.matches(args, from)) {
+            return body.command;
+        }
+        Object[] parts = Arrays.copyOfRange(args, from, args.length);
+        CommandNode command = compileParts(parts);
+        if (site != null) {
+            site.setState(new CompiledBody(parts, command));
+        }
+        return command;
+    }
+
+    public static Node compilePart(Object part) {
+        // Interpret only string
+        if (part instanceof String partStr) {
+
+            // Double brace: Variable in session
+            if (partStr.startsWith("{{") && partStr.endsWith("}}")) {
+                return new VariableNode(partStr.substring(2, partStr.length() - 2), partStr);
+            }
+
+            // Single brace: Result returned from the execution
+            else if (partStr.startsWith("{") && partStr.endsWith("}")) {
+                return new SubcommandNode(compileLine(partStr.substring(1, partStr.length() - 1)), partStr);
+            }
+        }
+        return new LiteralNode(part);
+    }
+
+    public static CompiledScript compileScript(String[] lines) {
+        CommandNode[] compiled = new CommandNode[lines.length];
+        for (int i = 0; i < lines.length; i++) {
+            String line = lines[i];
+            if (line == null || line.isEmpty()) {
+                continue;
+            }
+            compiled[i] = compileLine(line);
+        }
+        return new CompiledScript(lines, compiled);
+    }
+
+    public static CommandNode getCachedLine(String line) {
+        CommandNode compiled = lineCache.get(line);
+        if (compiled == null) {
+            if (lineCache.size() >= LINE_CACHE_LIMIT) {
+                lineCache.clear();
+            }
+            compiled = compileLine(line);
+            lineCache.put(line, compiled);
+        }
+        return compiled;
+    }
+
+    private static final class CompiledBody {
+        private final Object[] parts;
+        private final CommandNode command;
+
+        private CompiledBody(Object[] parts, CommandNode command) {
+            this.parts = parts;
+            this.command = command;
+        }
+
+        private boolean matches(Object[] args, int from) {
+            if (args.length - from != parts.length) {
+                return false;
+            }
+            for (int i = 0; i < parts.length; i++) {
+                if (!Objects.equals(parts[i], args[from + i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package org.kynesys.ksscripting.compiler;
+
+import lombok.Getter;
+import org.kynesys.lwks.KSExecutionSession;
+
+/**
+ * Plain token (or an already evaluated object) that is passed to the command as is.
+ */
+@Getter
+public class LiteralNode implements Node {
+
+    private final Object value;
+
+    public LiteralNode(Object value) {
+        this.value = value;
+    }
+
+    @Override
+    public Object getRawValue() {
+        return value;
+    }
+
+    @Override
+    public Object evaluate(KSExecutionSession session) {
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return String.valueOf(value);
+    }
+}
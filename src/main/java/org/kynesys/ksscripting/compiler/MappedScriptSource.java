@@ -0,0 +1,131 @@
+package org.kynesys.ksscripting.compiler;
+
+import lombok.Getter;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * ScriptSource that maps the file in windows and scans line boundaries in the mapped bytes.
+ * Blank and comment lines are recognized on the bytes, so only lines that are returned are ever decoded into a String;
+ * the file contents are not copied through the heap otherwise. Files larger than one window are remapped as reading moves on.
+ */
+public class MappedScriptSource implements ScriptSource {
+
+    // Largest region mapped at once; a single line must fit in it
+    private static final long WINDOW_SIZE = 256L * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final long size;
+    private MappedByteBuffer window;
+    private long windowStart;
+    private long position;                 // file offset of the next unread byte
+    @Getter private long lineNumber;       // 1-based number of the line last returned, 0 before the first
+    @Getter private long lineOffset = -1;  // file offset of the line last returned
+
+    public MappedScriptSource(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.size = channel.size();
+    }
+
+    @Override
+    public String nextLine() throws IOException {
+        return next(false);
+    }
+
+    @Override
+    public String nextStatement() throws IOException {
+        return next(true);
+    }
+
+    private String next(boolean skipIgnored) throws IOException {
+        while (position < size) {
+            long start = position;
+            long end = findLineEnd(start);
+            position = end < size ? end + 1 : size;
+            lineNumber++;
+
+            // Drop the \r of a \r\n line ending
+            if (end > start && byteAt(end - 1) == '\r') {
+                end--;
+            }
+            if (skipIgnored && isIgnored(start, end)) {
+                continue;
+            }
+            lineOffset = start;
+            return decode(start, end);
+        }
+        return null;
+    }
+
+    // Offset of the \n ending the line that starts at start, or size if the last line has none
+    private long findLineEnd(long start) throws IOException {
+        long offset = start;
+        while (offset < size) {
+            ensureMapped(offset, start);
+            int limit = window.limit();
+            for (int i = (int) (offset - windowStart); i < limit; i++) {
+                if (window.get(i) == '\n') {
+                    return windowStart + i;
+                }
+            }
+            offset = windowStart + limit;
+        }
+        return size;
+    }
+
+    // Same test as String.trim() followed by the -ScriptMode checks for empty, # and // lines
+    private boolean isIgnored(long start, long end) throws IOException {
+        long i = start;
+        while (i < end && (byteAt(i) & 0xFF) <= ' ') {
+            i++;
+        }
+        if (i == end) {
+            return true;
+        }
+        byte first = byteAt(i);
+        return first == '#' || (first == '/' && i + 1 < end && byteAt(i + 1) == '/');
+    }
+
+    private String decode(long start, long end) throws IOException {
+        long length = end - start;
+        if (length > Integer.MAX_VALUE - 8) {
+            throw new IOException("Line " + lineNumber + " is too long");
+        }
+        byte[] bytes = new byte[(int) length];
+        ensureMapped(start, start);
+        if (end <= windowStart + window.limit()) {
+            window.get((int) (start - windowStart), bytes);
+        } else {
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = byteAt(start + i);
+            }
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private byte byteAt(long offset) throws IOException {
+        ensureMapped(offset, offset);
+        return window.get((int) (offset - windowStart));
+    }
+
+    // Maps a window containing offset, starting at hint when the window has to move so the current line stays mapped
+    private void ensureMapped(long offset, long hint) throws IOException {
+        if (window != null && offset >= windowStart && offset < windowStart + window.limit()) {
+            return;
+        }
+        long start = offset - hint < WINDOW_SIZE ? hint : offset;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(WINDOW_SIZE, size - start));
+        windowStart = start;
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+    }
+}
@@ -0,0 +1,16 @@
+package org.kynesys.ksscripting.compiler;
+
+import org.kynesys.lwks.KSExecutionSession;
+
+/**
+ * A single argument of a compiled command line.
+ * Nodes are immutable once compiled and can be shared between sessions and threads.
+ */
+public interface Node {
+
+    // Value passed to the command when its position is not preprocessed (see whitelist)
+    Object getRawValue();
+
+    // Value passed to the command when its position is preprocessed
+    Object evaluate(KSExecutionSession session);
+}
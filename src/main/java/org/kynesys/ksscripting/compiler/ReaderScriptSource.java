@@ -0,0 +1,39 @@
+package org.kynesys.ksscripting.compiler;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * ScriptSource over any Reader, buffered.
+ */
+public class ReaderScriptSource implements ScriptSource {
+
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    private final BufferedReader reader;
+    private long lineNumber;
+
+    public ReaderScriptSource(Reader reader) {
+        this.reader = reader instanceof BufferedReader buffered ? buffered : new BufferedReader(reader, BUFFER_SIZE);
+    }
+
+    @Override
+    public String nextLine() throws IOException {
+        String line = reader.readLine();
+        if (line != null) {
+            lineNumber++;
+        }
+        return line;
+    }
+
+    @Override
+    public long getLineNumber() {
+        return lineNumber;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
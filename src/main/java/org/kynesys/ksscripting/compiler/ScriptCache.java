@@ -0,0 +1,229 @@
+package org.kynesys.ksscripting.compiler;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+
+/**
+ * On-disk cache of compiled scripts (.kssc), so a script that did not change is not tokenized again on the next run.
+ * A cache file holds the node tree of every statement line, keyed by the SHA-256 of the script bytes and the interpreter version;
+ * a cache that does not match either is ignored and rewritten. Command names are kept as names, because they resolve per session.
+ * FORMAT_VERSION has to change whenever the node classes or their encoding change.
+ */
+public class ScriptCache {
+
+    private static final int MAGIC = 0x4B53_5343; // "KSSC"
+    private static final int FORMAT_VERSION = 1;
+    private static final String INTERPRETER_VERSION = interpreterVersion();
+
+    private static final byte EMPTY = 0;
+    private static final byte COMMAND = 1;
+    private static final byte LITERAL = 2;
+    private static final byte VARIABLE = 3;
+    private static final byte SUBCOMMAND = 4;
+
+    // Compiled form of the script, from the cache when it is still valid; otherwise compiled and written to the cache
+    // cacheLocation: "1" keeps <script>.kssc beside the script, anything else is a directory holding <sha-256>.kssc files
+    public static CompiledScript load(File script, String cacheLocation) throws IOException {
+        // Read once: the hash and the compiled tree come from the same bytes, even if the file changes meanwhile
+        byte[] content = Files.readAllBytes(script.toPath());
+        byte[] hash = hash(content);
+        File cacheFile = cacheLocation.equals("1")
+                ? new File(script.getPath() + ".kssc")
+                : new File(cacheLocation, HexFormat.of().formatHex(hash) + ".kssc");
+
+        if (cacheFile.isFile()) {
+            try {
+                CompiledScript cached = read(cacheFile, hash);
+                if (cached != null) {
+                    return cached;
+                }
+            } catch (IOException | RuntimeException e) {
+                // Unreadable or truncated cache, compile again
+            }
+        }
+
+        CompiledScript compiled = compile(content);
+        try {
+            write(compiled, hash, cacheFile);
+        } catch (IOException e) {
+            System.err.println("Could not write script cache " + cacheFile.getPath() + ": " + e.getMessage());
+        }
+        return compiled;
+    }
+
+    // Statement lines only; blank and comment lines stay null as in KSScriptingCompiler.compileScript
+    private static CompiledScript compile(byte[] content) throws IOException {
+        try (ScriptSource source = new ReaderScriptSource(new InputStreamReader(new ByteArrayInputStream(content), StandardCharsets.UTF_8))) {
+            ArrayList<String> sourceLines = new ArrayList<>();
+            ArrayList<CommandNode> lines = new ArrayList<>();
+            String line;
+            while ((line = source.nextLine()) != null) {
+                String trimmed = line.trim();
+                boolean statement = !trimmed.isEmpty() && !trimmed.startsWith("#") && !trimmed.startsWith("//");
+                sourceLines.add(statement ? line : null);
+                lines.add(statement ? KSScriptingCompiler.compileLine(line) : null);
+            }
+            return new CompiledScript(sourceLines.toArray(new String[0]), lines.toArray(new CommandNode[0]));
+        }
+    }
+
+    private static void write(CompiledScript script, byte[] hash, File cacheFile) throws IOException {
+        File directory = cacheFile.getAbsoluteFile().getParentFile();
+        if (directory != null) {
+            Files.createDirectories(directory.toPath());
+        }
+        // Write to a temporary file first so concurrent runs never read a partial cache
+        Path temp = Files.createTempFile(directory == null ? null : directory.toPath(), cacheFile.getName(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 64 * 1024))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                writeString(out, INTERPRETER_VERSION);
+                out.write(hash);
+
+                String[] sourceLines = script.getSourceLines();
+                CommandNode[] lines = script.getLines();
+                out.writeInt(lines.length);
+                for (int i = 0; i < lines.length; i++) {
+                    if (lines[i] == null) continue;
+                    out.writeInt(i);
+                    writeString(out, sourceLines[i]);
+                    writeCommand(out, lines[i]);
+                }
+                out.writeInt(-1);
+            }
+            try {
+                Files.move(temp, cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // Cached script, or null if the cache is for different script contents or another interpreter version
+    static CompiledScript read(File cacheFile, byte[] hash) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(cacheFile.toPath()), 64 * 1024))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION || !INTERPRETER_VERSION.equals(readString(in))) {
+                return null;
+            }
+            byte[] cachedHash = new byte[hash.length];
+            in.readFully(cachedHash);
+            if (!Arrays.equals(hash, cachedHash)) {
+                return null;
+            }
+
+            int count = in.readInt();
+            String[] sourceLines = new String[count];
+            CommandNode[] lines = new CommandNode[count];
+            for (int index = in.readInt(); index >= 0; index = in.readInt()) {
+                sourceLines[index] = readString(in);
+                lines[index] = readCommand(in);
+            }
+            return new CompiledScript(sourceLines, lines);
+        }
+    }
+
+    private static void writeCommand(DataOutputStream out, CommandNode command) throws IOException {
+        if (command == CommandNode.EMPTY) {
+            out.writeByte(EMPTY);
+            return;
+        }
+        out.writeByte(COMMAND);
+        writeString(out, (String) command.getCommandPart());
+        Node[] arguments = command.getArguments();
+        out.writeInt(arguments.length);
+        for (Node argument : arguments) {
+            switch (argument) {
+                case VariableNode variable -> {
+                    out.writeByte(VARIABLE);
+                    writeString(out, variable.getVariableName());
+                    writeString(out, variable.getSource());
+                }
+                case SubcommandNode subcommand -> {
+                    out.writeByte(SUBCOMMAND);
+                    writeString(out, subcommand.getSource());
+                    writeCommand(out, subcommand.getCommand());
+                }
+                case LiteralNode literal -> {
+                    out.writeByte(LITERAL);
+                    writeString(out, (String) literal.getValue());
+                }
+                default -> throw new IOException("Cannot cache node " + argument.getClass().getName());
+            }
+        }
+    }
+
+    private static CommandNode readCommand(DataInputStream in) throws IOException {
+        if (in.readByte() == EMPTY) {
+            return CommandNode.EMPTY;
+        }
+        String commandPart = readString(in);
+        Node[] arguments = new Node[in.readInt()];
+        for (int i = 0; i < arguments.length; i++) {
+            byte tag = in.readByte();
+            arguments[i] = switch (tag) {
+                case VARIABLE -> new VariableNode(readString(in), readString(in));
+                case SUBCOMMAND -> {
+                    String source = readString(in);
+                    yield new SubcommandNode(readCommand(in), source);
+                }
+                case LITERAL -> new LiteralNode(readString(in));
+                default -> throw new IOException("Unknown node tag " + tag);
+            };
+        }
+        return new CommandNode(commandPart, arguments);
+    }
+
+    // Length-prefixed UTF-8, -1 for null; unlike writeUTF there is no 64 KB limit
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static byte[] hash(byte[] content) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(content);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    // Jar manifest version; classes run outside a jar share "dev", so FORMAT_VERSION is what guards format changes there
+    private static String interpreterVersion() {
+        String version = ScriptCache.class.getPackage().getImplementationVersion();
+        return version == null ? "dev" : version;
+    }
+}
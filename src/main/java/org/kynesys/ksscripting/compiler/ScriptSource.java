@@ -0,0 +1,46 @@
+package org.kynesys.ksscripting.compiler;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Script read one line at a time, so execution can start before the rest of the file is read and memory stays flat for large scripts.
+ * Files are decoded as UTF-8 regardless of the platform charset.
+ */
+public interface ScriptSource extends AutoCloseable {
+
+    // Next line of the script, or null at the end
+    String nextLine() throws IOException;
+
+    // 1-based number of the line last returned, 0 before the first
+    long getLineNumber();
+
+    @Override
+    void close() throws IOException;
+
+    // Next line that is not blank and not a # or // comment, or null at the end
+    default String nextStatement() throws IOException {
+        String line;
+        while ((line = nextLine()) != null) {
+            String trimmed = line.trim();
+            if (!trimmed.isEmpty() && !trimmed.startsWith("#") && !trimmed.startsWith("//")) {
+                return line;
+            }
+        }
+        return null;
+    }
+
+    // Buffered reader over the file; lines end at \n, \r or \r\n
+    static ScriptSource open(File file) throws IOException {
+        return new ReaderScriptSource(new BufferedReader(new InputStreamReader(Files.newInputStream(file.toPath()), StandardCharsets.UTF_8), ReaderScriptSource.BUFFER_SIZE));
+    }
+
+    // Memory-mapped file, skipping blank and comment lines without decoding them; lines end at \n or \r\n
+    static ScriptSource map(File file) throws IOException {
+        return new MappedScriptSource(file.toPath());
+    }
+}
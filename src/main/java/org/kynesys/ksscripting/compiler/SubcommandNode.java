@@ -0,0 +1,36 @@
+package org.kynesys.ksscripting.compiler;
+
+import lombok.Getter;
+import org.kynesys.ksscripting.KSScriptingInterpreter;
+import org.kynesys.lwks.KSExecutionSession;
+
+/**
+ * Single brace token: {command ...} is replaced with the result of the nested command.
+ * The nested line is compiled together with its parent, so it is never tokenized again.
+ */
+@Getter
+public class SubcommandNode implements Node {
+
+    private final CommandNode command;
+    private final String source;
+
+    public SubcommandNode(CommandNode command, String source) {
+        this.command = command;
+        this.source = source;
+    }
+
+    @Override
+    public Object getRawValue() {
+        return source;
+    }
+
+    @Override
+    public Object evaluate(KSExecutionSession session) {
+        return KSScriptingInterpreter.execute(command, session);
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+}
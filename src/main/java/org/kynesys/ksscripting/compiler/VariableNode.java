@@ -0,0 +1,43 @@
+package org.kynesys.ksscripting.compiler;
+
+import lombok.Getter;
+import org.kynesys.lwks.KSExecutionSession;
+import org.kynesys.lwks.KSSymbolTable;
+
+/**
+ * Double brace token: {{name}} is replaced with the session variable of the same name.
+ * The name is resolved to its symbol slot when the line is compiled, so evaluation is an array read
+ * (or a lookup by name, for a name the symbol table had no slot left for).
+ */
+@Getter
+public class VariableNode implements Node {
+
+    private final String variableName;
+    private final String source;
+    private final int slot; // -1: looked up by name
+
+    public VariableNode(String variableName, String source) {
+        this.variableName = variableName;
+        this.source = source;
+        this.slot = KSSymbolTable.slotOf(variableName);
+    }
+
+    @Override
+    public Object getRawValue() {
+        return source;
+    }
+
+    @Override
+    public Object evaluate(KSExecutionSession session) {
+        Object variableValue = slot >= 0 ? session.getVariable(slot) : session.getComplexVariable(variableName);
+        if (variableValue == null) {
+            throw new RuntimeException("Variable " + variableName + " not found in session");
+        }
+        return variableValue;
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+}
@@ -14,6 +14,7 @@ public class SocketDispatch implements KSScriptingExecutable {
     private final String manual = "SocketDispatch@me.hysong.atlas.cmdkit\n" +
             "This command dispatches an object to open socket." +
             "Usage: SocketDispatch <host> <port> <serializable object> [optional: authorization if KSSocket requires]";
+    private final boolean stateless = true;
 
     @Override
     public String returnType() {
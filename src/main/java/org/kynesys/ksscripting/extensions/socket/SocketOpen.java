@@ -17,6 +17,7 @@ public class SocketOpen implements KSScriptingExecutable {
     private final String manual = "SocketOpen@me.hysong.atlas.cmdkit\n" +
             "This command will open a socket server that echos the incoming data." +
             "Usage: SocketOpen <listening port> <whitelist> [optional: action template object (implements KSSocket.AcceptAction)] [optional: authorization if KSSocket requires]";
+    private final boolean stateless = true;
 
     @Override
     public String returnType() {
@@ -15,6 +15,11 @@ public class GCControlledInput implements KSScriptingExecutable {
         return KSScriptingNull.class.getName();
     }
 
+    @Override
+    public boolean isStateless() {
+        return true;
+    }
+
     @Override
     public Object execute(Object[] args, KSExecutionSession session) throws Exception {
         // Usage: GCControlledInput <component object> <keyboard | mouseClick> <event constructor args...>
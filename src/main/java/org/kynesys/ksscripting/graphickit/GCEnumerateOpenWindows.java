@@ -16,6 +16,11 @@ public class GCEnumerateOpenWindows implements KSScriptingExecutable {
         return List.class.getName();
     }
 
+    @Override
+    public boolean isStateless() {
+        return true;
+    }
+
     @Override
     public Object execute(Object[] args, KSExecutionSession session) throws Exception {
         // Usage:
@@ -135,6 +135,11 @@ public class GCFilterComponentsByPattern implements KSScriptingExecutable {
         return toReturn;
     }
 
+    @Override
+    public boolean isStateless() {
+        return true;
+    }
+
     @Override
     public Object execute(Object[] args, KSExecutionSession session) throws Exception {
         // Usage:
@@ -12,6 +12,11 @@ public class GCFilterWindowsByPattern implements KSScriptingExecutable {
         return List.class.getName();
     }
 
+    @Override
+    public boolean isStateless() {
+        return true;
+    }
+
     @Override
     public Object execute(Object[] args, KSExecutionSession session) throws Exception {
         // Usage:
@@ -12,6 +12,11 @@ public class GCInputAlert implements KSScriptingExecutable {
         return JOptionPane.class.getName();
     }
 
+    @Override
+    public boolean isStateless() {
+        return true;
+    }
+
     @Override
     public Object execute(Object[] args, KSExecutionSession session) throws Exception {
         // Usage:
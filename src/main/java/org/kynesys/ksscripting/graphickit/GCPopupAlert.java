@@ -11,6 +11,11 @@ public class GCPopupAlert implements KSScriptingExecutable {
         return JOptionPane.class.getName();
     }
 
+    @Override
+    public boolean isStateless() {
+        return true;
+    }
+
     @Override
     public Object execute(Object[] args, KSExecutionSession session) throws Exception {
         // Usage:
@@ -4,8 +4,11 @@ import lombok.Getter;
 import org.kynesys.lwks.KSExecutionSession;
 import org.kynesys.lwks.KSScriptingExecutable;
 import org.kynesys.ksscripting.KSScriptingInterpreter;
+import org.kynesys.ksscripting.compiler.CommandNode;
+import org.kynesys.ksscripting.compiler.KSScriptingCompiler;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 
@@ -14,6 +17,7 @@ public class WaitUntilDetected implements KSScriptingExecutable {
 
     private final boolean preprocessingInterpreterWhitelistEnabled = true;
     private final int[] preprocessingInterpreterWhitelist = new int[]{0, 1}; // 0: latency, 1: minLength
+    private final boolean stateless = true;
 
     @Override
     public String returnType() {
@@ -41,16 +45,15 @@ public class WaitUntilDetected implements KSScriptingExecutable {
             throw new RuntimeException("WaitUntilDetected requires the first two arguments to be non-negative numbers");
         }
 
-        // Build string
-        Object[] commandParts = new Object[args.length - 2];
+        // Build command
+        CommandNode command = KSScriptingCompiler.compileParts(Arrays.copyOfRange(args, 2, args.length));
 
         Collection<?> resultCol = new ArrayList<>();
         List<?> resultList = new ArrayList<>();
         Object[] resultArray = new Object[0];
 
         while (resultList.size() < minLength && resultCol.size() < minLength && resultArray.length < minLength) {
-            System.arraycopy(args, 2, commandParts, 0, args.length - 2);
-            Object result = KSScriptingInterpreter.execute(commandParts, session);
+            Object result = KSScriptingInterpreter.execute(command, session);
             switch (result) {
                 case List<?> objects -> resultList = objects;
                 case Object[] objects -> resultArray = objects;
@@ -0,0 +1,82 @@
+package org.kynesys.ksscripting.invoke;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shared call site cache for reflective calls made from scripts.
+ * Overload selection and handle binding happen once per (class, name, argument classes); later calls reuse the result.
+ */
+public class InvocationCache {
+
+    private static final int MAX_ENTRIES = 4096;
+
+    private static final Map<InvocationKey, PreparedInvocation> methods = new ConcurrentHashMap<>();
+    private static final Map<InvocationKey, PreparedInvocation> staticMethods = new ConcurrentHashMap<>();
+    private static final Map<InvocationKey, PreparedInvocation> constructors = new ConcurrentHashMap<>();
+
+    // Best public instance-callable method for the arguments, or null if no overload is compatible
+    public static PreparedInvocation method(Class<?> targetClass, String name, Object[] args) {
+        return lookupMethod(methods, targetClass, name, args, false);
+    }
+
+    // Best public static method for the arguments, or null if no overload is compatible
+    public static PreparedInvocation staticMethod(Class<?> targetClass, String name, Object[] args) {
+        return lookupMethod(staticMethods, targetClass, name, args, true);
+    }
+
+    // Best public constructor for the arguments, or null if no overload is compatible
+    public static PreparedInvocation constructor(Class<?> targetClass, Object[] args) {
+        InvocationKey key = new InvocationKey(targetClass, "<init>", InvocationKey.argTypesOf(args));
+        PreparedInvocation cached = constructors.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        List<Constructor<?>> candidates = List.of(targetClass.getConstructors());
+        Constructor<?> selected = OverloadResolver.selectBest(candidates, key.getArgTypes());
+        if (selected == null) {
+            return null;
+        }
+        return store(constructors, key, new PreparedInvocation(selected, key.getArgTypes()));
+    }
+
+    private static PreparedInvocation lookupMethod(Map<InvocationKey, PreparedInvocation> cache, Class<?> targetClass, String name, Object[] args, boolean onlyStatic) {
+        InvocationKey key = new InvocationKey(targetClass, name, InvocationKey.argTypesOf(args));
+        PreparedInvocation cached = cache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        List<Method> named = new ArrayList<>();
+        for (Method m : targetClass.getMethods()) {
+            if (!m.getName().equals(name) || !Modifier.isPublic(m.getModifiers())) continue;
+            if (onlyStatic && !Modifier.isStatic(m.getModifiers())) continue;
+            named.add(m);
+        }
+        Method selected = OverloadResolver.selectBest(named, key.getArgTypes());
+        if (selected == null) {
+            return null;
+        }
+        return store(cache, key, new PreparedInvocation(selected, key.getArgTypes()));
+    }
+
+    static PreparedInvocation store(Map<InvocationKey, PreparedInvocation> cache, InvocationKey key, PreparedInvocation prepared) {
+        if (cache.size() >= MAX_ENTRIES) {
+            cache.clear();
+        }
+        PreparedInvocation existing = cache.putIfAbsent(key, prepared);
+        return existing != null ? existing : prepared;
+    }
+
+    public static void clear() {
+        methods.clear();
+        staticMethods.clear();
+        constructors.clear();
+    }
+}
@@ -0,0 +1,48 @@
+package org.kynesys.ksscripting.invoke;
+
+import java.util.Arrays;
+
+/**
+ * Call site signature: target class, member name and the runtime classes of the arguments (null for a null argument).
+ */
+final class InvocationKey {
+
+    private final Class<?> targetClass;
+    private final String name;
+    private final Class<?>[] argTypes;
+    private final int hash;
+
+    InvocationKey(Class<?> targetClass, String name, Class<?>[] argTypes) {
+        this.targetClass = targetClass;
+        this.name = name;
+        this.argTypes = argTypes;
+        this.hash = 31 * (31 * targetClass.hashCode() + name.hashCode()) + Arrays.hashCode(argTypes);
+    }
+
+    static Class<?>[] argTypesOf(Object[] args) {
+        Class<?>[] types = new Class<?>[args.length];
+        for (int i = 0; i < args.length; i++) {
+            types[i] = args[i] == null ? null : args[i].getClass();
+        }
+        return types;
+    }
+
+    Class<?>[] getArgTypes() {
+        return argTypes;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof InvocationKey other)) return false;
+        return hash == other.hash
+                && targetClass == other.targetClass
+                && name.equals(other.name)
+                && Arrays.equals(argTypes, other.argTypes);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
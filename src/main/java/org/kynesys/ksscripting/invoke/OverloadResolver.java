@@ -0,0 +1,242 @@
+package org.kynesys.ksscripting.invoke;
+
+import java.lang.reflect.Executable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Picks the best overload of a method or constructor for a set of argument types.
+ * Works on argument classes only (null for a null argument), so the result can be cached per signature.
+ */
+public class OverloadResolver {
+
+    static final Map<Class<?>, Class<?>> PRIMITIVE_TO_WRAPPER = new HashMap<>();
+    static final Map<Class<?>, Class<?>> WRAPPER_TO_PRIMITIVE = new HashMap<>();
+    static {
+        PRIMITIVE_TO_WRAPPER.put(boolean.class, Boolean.class);
+        PRIMITIVE_TO_WRAPPER.put(byte.class, Byte.class);
+        PRIMITIVE_TO_WRAPPER.put(short.class, Short.class);
+        PRIMITIVE_TO_WRAPPER.put(char.class, Character.class);
+        PRIMITIVE_TO_WRAPPER.put(int.class, Integer.class);
+        PRIMITIVE_TO_WRAPPER.put(long.class, Long.class);
+        PRIMITIVE_TO_WRAPPER.put(float.class, Float.class);
+        PRIMITIVE_TO_WRAPPER.put(double.class, Double.class);
+
+        for (Map.Entry<Class<?>, Class<?>> e : PRIMITIVE_TO_WRAPPER.entrySet()) {
+            WRAPPER_TO_PRIMITIVE.put(e.getValue(), e.getKey());
+        }
+    }
+
+    // ---- Selection ----
+
+    public static <T extends Executable> T selectBest(List<T> executables, Class<?>[] argTypes) {
+        List<Candidate<T>> candidates = new ArrayList<>();
+        for (T executable : executables) {
+            Score score = compatibleScore(executable.getParameterTypes(), executable.isVarArgs(), argTypes);
+            if (score != null) {
+                candidates.add(new Candidate<>(executable, score));
+            }
+        }
+        if (candidates.isEmpty()) return null;
+
+        // Pick the “best” by score, then by specificity (subclass params win), then by non-varargs preference.
+        candidates.sort((a, b) -> {
+            int cmp = a.score.compareTo(b.score);
+            if (cmp != 0) return cmp;
+            // Prefer non-varargs when scores equal
+            if (a.executable.isVarArgs() != b.executable.isVarArgs()) {
+                return a.executable.isVarArgs() ? 1 : -1;
+            }
+            // Prefer more specific parameter types
+            return compareSpecificity(a.executable.getParameterTypes(), b.executable.getParameterTypes());
+        });
+
+        return candidates.get(0).executable;
+    }
+
+    // Whether the selected varargs executable receives the caller's last argument as the array itself
+    public static boolean isArrayPassedAsVarargs(Class<?>[] params, Class<?>[] argTypes) {
+        if (argTypes.length != params.length) return false;
+        Class<?> last = argTypes[argTypes.length - 1];
+        return last != null && params[params.length - 1].isAssignableFrom(last);
+    }
+
+    private static int compareSpecificity(Class<?>[] a, Class<?>[] b) {
+        int n = java.lang.Math.min(a.length, b.length);
+        int score = 0;
+        for (int i = 0; i < n; i++) {
+            if (a[i] == b[i]) continue;
+            if (a[i].isAssignableFrom(b[i])) score += 1;
+            else if (b[i].isAssignableFrom(a[i])) score -= 1;
+        }
+        return score;
+    }
+
+    // ---- Compatibility + scoring ----
+
+    private static final class Candidate<T extends Executable> {
+        final T executable;
+        final Score score;
+        Candidate(T executable, Score score) { this.executable = executable; this.score = score; }
+    }
+
+    private static final class Score implements Comparable<Score> {
+        // Lower is better. We accumulate penalties for conversions:
+        // 0 = exact
+        // 1 = boxing/unboxing
+        // 2 = primitive widening
+        // 3 = reference upcast
+        // +1 if varargs packing used
+        final int value;
+        final boolean usedVarargs;
+        Score(int value, boolean usedVarargs) { this.value = value; this.usedVarargs = usedVarargs; }
+
+        @Override public int compareTo(Score o) {
+            int c = Integer.compare(this.value, o.value);
+            if (c != 0) return c;
+            // prefer non-varargs if tie
+            return Boolean.compare(this.usedVarargs, o.usedVarargs);
+        }
+    }
+
+    private static Score compatibleScore(Class<?>[] params, boolean isVarArgs, Class<?>[] args) {
+        if (!isVarArgs) {
+            if (params.length != args.length) return null;
+            int acc = 0;
+            for (int i = 0; i < params.length; i++) {
+                int s = singleParamScore(params[i], args[i]);
+                if (s < 0) return null;
+                acc += s;
+            }
+            return new Score(acc, false);
+        } else {
+            if (args.length < params.length - 1) return null; // not enough for fixed part
+            int acc = 0;
+            // fixed part
+            for (int i = 0; i < params.length - 1; i++) {
+                int s = singleParamScore(params[i], args[i]);
+                if (s < 0) return null;
+                acc += s;
+            }
+            // varargs part
+            Class<?> compType = params[params.length - 1].getComponentType();
+            if (isArrayPassedAsVarargs(params, args)) {
+                // caller already passed an array; accept as is
+                return new Score(acc, true);
+            } else {
+                for (int i = params.length - 1; i < args.length; i++) {
+                    int s = singleParamScore(compType, args[i]);
+                    if (s < 0) return null;
+                    acc += s;
+                }
+                return new Score(acc + 1, true); // slight penalty for packing
+            }
+        }
+    }
+
+    // returns -1 if incompatible; otherwise a non-negative penalty score
+    static int singleParamScore(Class<?> paramType, Class<?> argType) {
+        if (argType == null) return paramType.isPrimitive() ? -1 : 3; // null to primitive impossible; null to ref is upcast-like
+
+        if (paramType.equals(argType)) return 0; // exact
+
+        if (paramType.isAssignableFrom(argType)) return 3; // reference upcast
+
+        // boxing/unboxing match
+        if (paramType.isPrimitive()) {
+            Class<?> wrapper = PRIMITIVE_TO_WRAPPER.get(paramType);
+            if (wrapper != null && wrapper.equals(argType)) return 1;
+            // primitive widening after unboxing
+            Class<?> argPrim = WRAPPER_TO_PRIMITIVE.getOrDefault(argType, argType.isPrimitive() ? argType : null);
+            if (argPrim != null && isWideningPrimitiveConvertible(argPrim, paramType)) return 2;
+            return -1;
+        } else {
+            // param is reference
+            Class<?> paramPrim = WRAPPER_TO_PRIMITIVE.get(paramType);
+            if (paramPrim != null && argType.isPrimitive() && paramPrim.equals(argType)) return 1; // unboxing in reverse case
+            return -1;
+        }
+    }
+
+    private static boolean isWideningPrimitiveConvertible(Class<?> from, Class<?> to) {
+        if (!from.isPrimitive() || !to.isPrimitive()) return false;
+        if (from == to) return true;
+        if (from == byte.class)   return to == short.class || to == int.class || to == long.class || to == float.class || to == double.class;
+        if (from == short.class)  return to == int.class || to == long.class || to == float.class || to == double.class;
+        if (from == char.class)   return to == int.class || to == long.class || to == float.class || to == double.class;
+        if (from == int.class)    return to == long.class || to == float.class || to == double.class;
+        if (from == long.class)   return to == float.class || to == double.class;
+        if (from == float.class)  return to == double.class;
+        return false;
+    }
+
+    // ---- Argument conversion (boxing/unboxing/widening) ----
+
+    static Object convert(Object value, Class<?> targetType) {
+        if (value == null) return null;
+
+        // If already assignable, done.
+        if (targetType.isInstance(value)) return value;
+
+        // Handle primitive targets via wrappers
+        if (targetType.isPrimitive()) {
+            Class<?> wrapper = PRIMITIVE_TO_WRAPPER.get(targetType);
+            if (wrapper != null && wrapper.isInstance(value)) {
+                // wrapper matches; the handle will unbox. No change needed.
+                return value;
+            }
+            // Try numeric/char conversions
+            return convertToPrimitiveCompatible(value, targetType);
+        }
+
+        // No general-purpose coercions beyond numeric/char/boolean are safe
+        return value; // let the invocation throw if truly incompatible
+    }
+
+    private static Object convertToPrimitiveCompatible(Object value, Class<?> primitiveTarget) {
+        if (primitiveTarget == boolean.class) {
+            if (value instanceof Boolean) return value;
+            throw new IllegalArgumentException("Cannot convert " + value.getClass() + " to boolean");
+        }
+        if (primitiveTarget == char.class) {
+            if (value instanceof Character) return value;
+            if (value instanceof Number) {
+                int i = ((Number) value).intValue();
+                return (char) i;
+            }
+            if (value instanceof String s && s.length() == 1) {
+                return s.charAt(0);
+            }
+            throw new IllegalArgumentException("Cannot convert " + value.getClass() + " to char");
+        }
+        if (!(value instanceof Number)) {
+            // allow Character -> numeric
+            if (value instanceof Character ch) {
+                int i = (int) ch.charValue();
+                return coerceNumberToPrimitive(i, primitiveTarget);
+            }
+            throw new IllegalArgumentException("Cannot convert non-number " + value.getClass() + " to numeric primitive");
+        }
+        Number n = (Number) value;
+        return coerceNumberToPrimitive(n, primitiveTarget);
+    }
+
+    private static Object coerceNumberToPrimitive(Number n, Class<?> primitiveTarget) {
+        if (primitiveTarget == byte.class)   return n.byteValue();
+        if (primitiveTarget == short.class)  return n.shortValue();
+        if (primitiveTarget == int.class)    return n.intValue();
+        if (primitiveTarget == long.class)   return n.longValue();
+        if (primitiveTarget == float.class)  return n.floatValue();
+        if (primitiveTarget == double.class) return n.doubleValue();
+        throw new IllegalArgumentException("Unsupported primitive: " + primitiveTarget);
+    }
+
+    // Whether convert(value, targetType) can return the value unchanged for every value of argType
+    static boolean needsNoConversion(Class<?> targetType, Class<?> argType) {
+        if (argType == null) return true;
+        if (targetType.isAssignableFrom(argType)) return true;
+        return targetType.isPrimitive() && PRIMITIVE_TO_WRAPPER.get(targetType) == argType;
+    }
+}
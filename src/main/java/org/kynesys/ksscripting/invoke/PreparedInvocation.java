@@ -0,0 +1,168 @@
+package org.kynesys.ksscripting.invoke;
+
+import lombok.Getter;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Executable;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * A selected method or constructor bound to a MethodHandle, with the argument conversion for one call signature worked out.
+ * The handle always has the shape (Object target, Object[] arguments) -> Object; the target is ignored for static members and constructors.
+ */
+@Getter
+public class PreparedInvocation {
+
+    private static final MethodType GENERIC_TYPE = MethodType.methodType(Object.class, Object.class, Object[].class);
+
+    private final Executable executable;
+    private final MethodHandle handle;
+    private final Class<?>[] parameterTypes;
+    private final boolean[] converted;   // per provided argument: whether convert() has to run
+    private final Class<?>[] targetTypes; // per provided argument: the type it is converted to
+    private final boolean packVarargs;
+
+    PreparedInvocation(Executable executable, Class<?>[] argTypes) {
+        this.executable = executable;
+        this.parameterTypes = executable.getParameterTypes();
+        this.handle = bind(executable);
+        this.packVarargs = executable.isVarArgs() && !OverloadResolver.isArrayPassedAsVarargs(parameterTypes, argTypes);
+
+        this.targetTypes = new Class<?>[argTypes.length];
+        this.converted = new boolean[argTypes.length];
+        int fixed = packVarargs ? parameterTypes.length - 1 : parameterTypes.length;
+        for (int i = 0; i < argTypes.length; i++) {
+            targetTypes[i] = i < fixed ? parameterTypes[i] : parameterTypes[parameterTypes.length - 1].getComponentType();
+            converted[i] = !OverloadResolver.needsNoConversion(targetTypes[i], argTypes[i]);
+        }
+    }
+
+    public Object invoke(Object target, Object[] provided) throws Throwable {
+        return (Object) handle.invokeExact(target, prepareArguments(provided));
+    }
+
+    public Object[] prepareArguments(Object[] provided) {
+        if (!packVarargs) {
+            Object[] out = new Object[provided.length];
+            for (int i = 0; i < provided.length; i++) {
+                out[i] = converted[i] ? OverloadResolver.convert(provided[i], targetTypes[i]) : provided[i];
+            }
+            return out;
+        }
+        int fixed = parameterTypes.length - 1;
+        Object[] out = new Object[parameterTypes.length];
+        for (int i = 0; i < fixed; i++) {
+            out[i] = converted[i] ? OverloadResolver.convert(provided[i], targetTypes[i]) : provided[i];
+        }
+        Object varArray = Array.newInstance(parameterTypes[fixed].getComponentType(), provided.length - fixed);
+        for (int i = fixed; i < provided.length; i++) {
+            Array.set(varArray, i - fixed, converted[i] ? OverloadResolver.convert(provided[i], targetTypes[i]) : provided[i]);
+        }
+        out[fixed] = varArray;
+        return out;
+    }
+
+    public String signature() {
+        StringBuilder sb = new StringBuilder(executable instanceof Constructor<?> ? executable.getDeclaringClass().getName() : executable.getName()).append("(");
+        for (int i = 0; i < parameterTypes.length; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append(parameterTypes[i].getTypeName());
+        }
+        return sb.append(")").toString();
+    }
+
+    private static MethodHandle bind(Executable executable) {
+        MethodHandle direct;
+        boolean hasReceiver;
+        try {
+            if (executable instanceof Method method) {
+                hasReceiver = !Modifier.isStatic(method.getModifiers());
+                direct = unreflect(method);
+            } else {
+                hasReceiver = false;
+                direct = unreflectConstructor((Constructor<?>) executable);
+            }
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException("Cannot access " + executable, e);
+        }
+
+        int count = executable.getParameterCount();
+        MethodHandle spread = direct.asFixedArity().asSpreader(Object[].class, count);
+        if (!hasReceiver) {
+            spread = MethodHandles.dropArguments(spread, 0, Object.class);
+        }
+        return spread.asType(GENERIC_TYPE);
+    }
+
+    private static MethodHandle unreflect(Method method) throws IllegalAccessException {
+        Method accessible = findPublicEquivalent(method);
+        if (accessible != null) {
+            return MethodHandles.publicLookup().unreflect(accessible);
+        }
+        // No public declaration to go through (e.g. a public method of a package-private class)
+        method.setAccessible(true);
+        return MethodHandles.lookup().unreflect(method);
+    }
+
+    private static MethodHandle unreflectConstructor(Constructor<?> constructor) throws IllegalAccessException {
+        if (isPubliclyAccessible(constructor.getDeclaringClass()) && Modifier.isPublic(constructor.getModifiers())) {
+            return MethodHandles.publicLookup().unreflectConstructor(constructor);
+        }
+        constructor.setAccessible(true);
+        return MethodHandles.lookup().unreflectConstructor(constructor);
+    }
+
+    // The same method as declared by a public, exported class or interface in the hierarchy, or null if none
+    private static Method findPublicEquivalent(Method method) {
+        if (!Modifier.isPublic(method.getModifiers())) {
+            return null;
+        }
+        Class<?> declaring = method.getDeclaringClass();
+        if (isPubliclyAccessible(declaring)) {
+            return method;
+        }
+        if (Modifier.isStatic(method.getModifiers())) {
+            return null;
+        }
+        for (Class<?> c = declaring; c != null; c = c.getSuperclass()) {
+            Method found = findInInterfaces(c, method);
+            if (found != null) return found;
+            Class<?> superclass = c.getSuperclass();
+            if (superclass != null && isPubliclyAccessible(superclass)) {
+                try {
+                    return superclass.getMethod(method.getName(), method.getParameterTypes());
+                } catch (NoSuchMethodException ignored) {
+                    // keep walking
+                }
+            }
+        }
+        return null;
+    }
+
+    private static Method findInInterfaces(Class<?> c, Method method) {
+        for (Class<?> iface : c.getInterfaces()) {
+            if (isPubliclyAccessible(iface)) {
+                try {
+                    return iface.getMethod(method.getName(), method.getParameterTypes());
+                } catch (NoSuchMethodException ignored) {
+                    // not declared along this branch
+                }
+            }
+            Method found = findInInterfaces(iface, method);
+            if (found != null) return found;
+        }
+        return null;
+    }
+
+    private static boolean isPubliclyAccessible(Class<?> c) {
+        for (Class<?> k = c; k != null; k = k.getDeclaringClass()) {
+            if (!Modifier.isPublic(k.getModifiers())) return false;
+        }
+        return c.getModule().isExported(c.getPackageName());
+    }
+}
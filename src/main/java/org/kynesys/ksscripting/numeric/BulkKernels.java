@@ -0,0 +1,222 @@
+package org.kynesys.ksscripting.numeric;
+
+import java.math.BigInteger;
+
+/**
+ * Loops over primitive arrays for the bulk Math operations.
+ * When VectorKernels was built (./gradlew -Pvector), the JVM resolved jdk.incubator.vector (java --add-modules jdk.incubator.vector,
+ * also needed with java -jar) and the array is long enough, the loops that have a vector form run through it;
+ * otherwise they run as plain scalar loops.
+ * Long arithmetic is overflow-checked like the scalar Math kernels; a long sum fails only if its total overflows.
+ * Vector sums of doubles add in a different order, so the last bits can differ from the scalar loop.
+ */
+public class BulkKernels {
+
+    // Below this length the scalar loop is at least as fast
+    private static final int VECTOR_THRESHOLD = 64;
+
+    private static final VectorBackend VECTOR = loadVector();
+
+    public static boolean isVectorAvailable() {
+        return VECTOR != null;
+    }
+
+    public static long sum(long[] a) {
+        if (useVector(a.length)) return VECTOR.sum(a);
+        return scalarSum(a);
+    }
+
+    // Fails only when the total does not fit in a long; an overflowing partial sum is redone exactly,
+    // so the result does not depend on the order the elements are added in (or on the vector lane count)
+    static long scalarSum(long[] a) {
+        long sum = 0;
+        for (long v : a) {
+            long r = sum + v;
+            if (((sum ^ r) & (v ^ r)) < 0) {
+                return wideSum(a);
+            }
+            sum = r;
+        }
+        return sum;
+    }
+
+    private static long wideSum(long[] a) {
+        BigInteger total = BigInteger.ZERO;
+        for (long v : a) {
+            total = total.add(BigInteger.valueOf(v));
+        }
+        if (total.bitLength() > 63) {
+            throw new ArithmeticException("long overflow");
+        }
+        return total.longValue();
+    }
+
+    public static double sum(double[] a) {
+        if (useVector(a.length)) return VECTOR.sum(a);
+        double sum = 0;
+        for (double v : a) {
+            sum += v;
+        }
+        return sum;
+    }
+
+    public static long min(long[] a) {
+        if (useVector(a.length)) return VECTOR.min(a);
+        long min = Long.MAX_VALUE;
+        for (long v : a) {
+            min = Math.min(min, v);
+        }
+        return min;
+    }
+
+    public static long max(long[] a) {
+        if (useVector(a.length)) return VECTOR.max(a);
+        long max = Long.MIN_VALUE;
+        for (long v : a) {
+            max = Math.max(max, v);
+        }
+        return max;
+    }
+
+    public static double min(double[] a) {
+        if (useVector(a.length)) return VECTOR.min(a);
+        double min = Double.POSITIVE_INFINITY;
+        for (double v : a) {
+            min = Math.min(min, v);
+        }
+        return min;
+    }
+
+    public static double max(double[] a) {
+        if (useVector(a.length)) return VECTOR.max(a);
+        double max = Double.NEGATIVE_INFINITY;
+        for (double v : a) {
+            max = Math.max(max, v);
+        }
+        return max;
+    }
+
+    public static long dot(long[] a, long[] b) {
+        long sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum = Math.addExact(sum, Math.multiplyExact(a[i], b[i]));
+        }
+        return sum;
+    }
+
+    public static double dot(double[] a, double[] b) {
+        if (useVector(a.length)) return VECTOR.dot(a, b);
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    public static long[] add(long[] a, long[] b) {
+        if (useVector(a.length)) return VECTOR.add(a, b);
+        long[] out = new long[a.length];
+        for (int i = 0; i < a.length; i++) {
+            out[i] = Math.addExact(a[i], b[i]);
+        }
+        return out;
+    }
+
+    public static long[] subtract(long[] a, long[] b) {
+        if (useVector(a.length)) return VECTOR.subtract(a, b);
+        long[] out = new long[a.length];
+        for (int i = 0; i < a.length; i++) {
+            out[i] = Math.subtractExact(a[i], b[i]);
+        }
+        return out;
+    }
+
+    public static long[] multiply(long[] a, long[] b) {
+        long[] out = new long[a.length];
+        for (int i = 0; i < a.length; i++) {
+            out[i] = Math.multiplyExact(a[i], b[i]);
+        }
+        return out;
+    }
+
+    public static long[] divide(long[] a, long[] b) {
+        long[] out = new long[a.length];
+        for (int i = 0; i < a.length; i++) {
+            out[i] = Math.divideExact(a[i], b[i]);
+        }
+        return out;
+    }
+
+    public static long[] mod(long[] a, long[] b) {
+        long[] out = new long[a.length];
+        for (int i = 0; i < a.length; i++) {
+            out[i] = a[i] % b[i];
+        }
+        return out;
+    }
+
+    public static double[] add(double[] a, double[] b) {
+        if (useVector(a.length)) return VECTOR.add(a, b);
+        double[] out = new double[a.length];
+        for (int i = 0; i < a.length; i++) {
+            out[i] = a[i] + b[i];
+        }
+        return out;
+    }
+
+    public static double[] subtract(double[] a, double[] b) {
+        if (useVector(a.length)) return VECTOR.subtract(a, b);
+        double[] out = new double[a.length];
+        for (int i = 0; i < a.length; i++) {
+            out[i] = a[i] - b[i];
+        }
+        return out;
+    }
+
+    public static double[] multiply(double[] a, double[] b) {
+        if (useVector(a.length)) return VECTOR.multiply(a, b);
+        double[] out = new double[a.length];
+        for (int i = 0; i < a.length; i++) {
+            out[i] = a[i] * b[i];
+        }
+        return out;
+    }
+
+    public static double[] divide(double[] a, double[] b) {
+        if (useVector(a.length)) return VECTOR.divide(a, b);
+        double[] out = new double[a.length];
+        for (int i = 0; i < a.length; i++) {
+            out[i] = a[i] / b[i];
+        }
+        return out;
+    }
+
+    public static double[] mod(double[] a, double[] b) {
+        double[] out = new double[a.length];
+        for (int i = 0; i < a.length; i++) {
+            out[i] = a[i] % b[i];
+        }
+        return out;
+    }
+
+    private static boolean useVector(int length) {
+        return VECTOR != null && length >= VECTOR_THRESHOLD;
+    }
+
+    // VectorKernels must not be touched unless the incubator module was resolved at startup
+    private static VectorBackend loadVector() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return null;
+        }
+        try {
+            Class<?> kernels = Class.forName("org.kynesys.ksscripting.numeric.VectorKernels");
+            if (!(boolean) kernels.getDeclaredMethod("isUseful").invoke(null)) {
+                return null;
+            }
+            return (VectorBackend) kernels.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            // Not built into this jar, or not usable on this JVM
+            return null;
+        }
+    }
+}
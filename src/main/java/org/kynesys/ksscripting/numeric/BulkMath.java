@@ -0,0 +1,274 @@
+package org.kynesys.ksscripting.numeric;
+
+import org.kynesys.ksscripting.objects.RangeObject;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Bulk forms of the Math command, for int[], long[], float[], double[] and collections of numbers.
+ * Whole-number data is processed as long[] and fractional data as double[], each converted once per operand, so the loops never box.
+ * Reductions (sum, min, max, mean, dot) return a single number; element-wise add, subtract, multiply, divide and mod return
+ * a list when the first bulk operand is a list, a long[] or double[] otherwise. A plain number on one side is applied to every element.
+ */
+public class BulkMath {
+
+    public static boolean isReduction(String operation) {
+        return switch (operation) {
+            case "sum", "min", "max", "mean", "dot" -> true;
+            default -> false;
+        };
+    }
+
+    public static boolean isBulk(Object value) {
+        return value instanceof Collection<?> || value instanceof int[] || value instanceof long[] || value instanceof double[]
+                || value instanceof float[] || value instanceof short[] || value instanceof byte[];
+    }
+
+    // Whether Math should route the call here: a reduction, or any array or collection operand
+    public static boolean handles(String operation, Object[] args, int from) {
+        if (isReduction(operation)) {
+            return true;
+        }
+        for (int i = from; i < args.length; i++) {
+            if (isBulk(args[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static Object execute(String operation, Object[] args, int from) {
+        boolean fractional = false;
+        for (int i = from; i < args.length; i++) {
+            fractional |= isFractional(operation, args[i]);
+        }
+        if (isReduction(operation)) {
+            return reduce(operation, args, from, fractional);
+        }
+        return elementwise(operation, args, from, fractional);
+    }
+
+    private static Object reduce(String operation, Object[] args, int from, boolean fractional) {
+        if (operation.equals("dot")) {
+            if (args.length - from != 2 || !isBulk(args[from]) || !isBulk(args[from + 1])) {
+                throw new RuntimeException("Math dot requires 2 arrays or lists of numbers");
+            }
+            if (fractional) {
+                double[] a = toDoubles(args[from]);
+                double[] b = toDoubles(args[from + 1]);
+                checkLengths(operation, a.length, b.length);
+                return BulkKernels.dot(a, b);
+            }
+            long[] a = toLongs(args[from]);
+            long[] b = toLongs(args[from + 1]);
+            checkLengths(operation, a.length, b.length);
+            return BulkKernels.dot(a, b);
+        }
+
+        if (fractional) {
+            double[] values = concatDoubles(args, from);
+            if (values.length == 0 && !operation.equals("sum")) {
+                throw new RuntimeException("Math " + operation + " requires at least one value");
+            }
+            return switch (operation) {
+                case "sum" -> BulkKernels.sum(values);
+                case "min" -> BulkKernels.min(values);
+                case "max" -> BulkKernels.max(values);
+                default -> BulkKernels.sum(values) / values.length;
+            };
+        }
+        long[] values = concatLongs(args, from);
+        if (values.length == 0 && !operation.equals("sum")) {
+            throw new RuntimeException("Math " + operation + " requires at least one value");
+        }
+        return switch (operation) {
+            case "sum" -> BulkKernels.sum(values);
+            case "min" -> BulkKernels.min(values);
+            case "max" -> BulkKernels.max(values);
+            default -> (double) BulkKernels.sum(values) / values.length;
+        };
+    }
+
+    private static Object elementwise(String operation, Object[] args, int from, boolean fractional) {
+        if (args.length - from != 2) {
+            throw new RuntimeException("Math " + operation + " on arrays or lists requires exactly 2 operands");
+        }
+        Object left = args[from];
+        Object right = args[from + 1];
+        boolean asList = isBulk(left) ? left instanceof Collection<?> : right instanceof Collection<?>;
+
+        if (fractional) {
+            double[] a = toDoubles(left);
+            double[] b = toDoubles(right);
+            if (!isBulk(left)) a = broadcast(a[0], b.length);
+            if (!isBulk(right)) b = broadcast(b[0], a.length);
+            checkLengths(operation, a.length, b.length);
+            double[] result = switch (operation) {
+                case "add" -> BulkKernels.add(a, b);
+                case "subtract" -> BulkKernels.subtract(a, b);
+                case "multiply" -> BulkKernels.multiply(a, b);
+                case "divide" -> BulkKernels.divide(a, b);
+                case "mod" -> BulkKernels.mod(a, b);
+                default -> throw new RuntimeException("Invalid operation for arrays or lists: " + operation);
+            };
+            if (!asList) return result;
+            List<Double> list = new ArrayList<>(result.length);
+            for (double v : result) list.add(v);
+            return list;
+        }
+
+        long[] a = toLongs(left);
+        long[] b = toLongs(right);
+        if (!isBulk(left)) a = broadcast(a[0], b.length);
+        if (!isBulk(right)) b = broadcast(b[0], a.length);
+        checkLengths(operation, a.length, b.length);
+        long[] result = switch (operation) {
+            case "add" -> BulkKernels.add(a, b);
+            case "subtract" -> BulkKernels.subtract(a, b);
+            case "multiply" -> BulkKernels.multiply(a, b);
+            case "divide" -> BulkKernels.divide(a, b);
+            case "mod" -> BulkKernels.mod(a, b);
+            default -> throw new RuntimeException("Invalid operation for arrays or lists: " + operation);
+        };
+        if (!asList) return result;
+        List<Long> list = new ArrayList<>(result.length);
+        for (long v : result) list.add(v);
+        return list;
+    }
+
+    private static boolean isFractional(String operation, Object value) {
+        if (value instanceof double[] || value instanceof float[] || value instanceof Double || value instanceof Float) {
+            return true;
+        }
+        if (value instanceof int[] || value instanceof long[] || value instanceof short[] || value instanceof byte[]
+                || value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte
+                || value instanceof RangeObject) {
+            return false;
+        }
+        if (value instanceof Collection<?> collection) {
+            boolean fractional = false;
+            for (Object element : collection) {
+                if (element instanceof Double || element instanceof Float) {
+                    fractional = true;
+                } else if (!(element instanceof Integer || element instanceof Long || element instanceof Short || element instanceof Byte)) {
+                    throw new RuntimeException("Math " + operation + " requires list elements to be int, long, float or double, but got " + (element == null ? "null" : element.getClass().getSimpleName()));
+                }
+            }
+            return fractional;
+        }
+        throw new RuntimeException("Math " + operation + " requires numbers, numeric arrays or lists, but got " + (value == null ? "null" : value.getClass().getSimpleName()));
+    }
+
+    private static long[] toLongs(Object value) {
+        if (value instanceof long[] longs) return longs;
+        if (value instanceof int[] ints) {
+            long[] out = new long[ints.length];
+            for (int i = 0; i < ints.length; i++) out[i] = ints[i];
+            return out;
+        }
+        if (value instanceof short[] shorts) {
+            long[] out = new long[shorts.length];
+            for (int i = 0; i < shorts.length; i++) out[i] = shorts[i];
+            return out;
+        }
+        if (value instanceof byte[] bytes) {
+            long[] out = new long[bytes.length];
+            for (int i = 0; i < bytes.length; i++) out[i] = bytes[i];
+            return out;
+        }
+        if (value instanceof RangeObject range) {
+            long[] out = new long[range.size()];
+            for (int i = 0; i < out.length; i++) out[i] = range.getInt(i);
+            return out;
+        }
+        if (value instanceof Collection<?> collection) {
+            long[] out = new long[collection.size()];
+            int i = 0;
+            for (Object element : collection) out[i++] = ((Number) element).longValue();
+            return out;
+        }
+        return new long[]{((Number) value).longValue()};
+    }
+
+    private static double[] toDoubles(Object value) {
+        if (value instanceof double[] doubles) return doubles;
+        if (value instanceof float[] floats) {
+            double[] out = new double[floats.length];
+            for (int i = 0; i < floats.length; i++) out[i] = floats[i];
+            return out;
+        }
+        if (value instanceof RangeObject range) {
+            double[] out = new double[range.size()];
+            for (int i = 0; i < out.length; i++) out[i] = range.getInt(i);
+            return out;
+        }
+        if (value instanceof Collection<?> collection) {
+            double[] out = new double[collection.size()];
+            int i = 0;
+            for (Object element : collection) out[i++] = ((Number) element).doubleValue();
+            return out;
+        }
+        if (value instanceof Number number) {
+            return new double[]{number.doubleValue()};
+        }
+        long[] longs = toLongs(value);
+        double[] out = new double[longs.length];
+        for (int i = 0; i < longs.length; i++) out[i] = longs[i];
+        return out;
+    }
+
+    private static long[] concatLongs(Object[] args, int from) {
+        if (args.length - from == 1) return toLongs(args[from]);
+        long[][] parts = new long[args.length - from][];
+        int length = 0;
+        for (int i = from; i < args.length; i++) {
+            parts[i - from] = toLongs(args[i]);
+            length += parts[i - from].length;
+        }
+        long[] out = new long[length];
+        int offset = 0;
+        for (long[] part : parts) {
+            System.arraycopy(part, 0, out, offset, part.length);
+            offset += part.length;
+        }
+        return out;
+    }
+
+    private static double[] concatDoubles(Object[] args, int from) {
+        if (args.length - from == 1) return toDoubles(args[from]);
+        double[][] parts = new double[args.length - from][];
+        int length = 0;
+        for (int i = from; i < args.length; i++) {
+            parts[i - from] = toDoubles(args[i]);
+            length += parts[i - from].length;
+        }
+        double[] out = new double[length];
+        int offset = 0;
+        for (double[] part : parts) {
+            System.arraycopy(part, 0, out, offset, part.length);
+            offset += part.length;
+        }
+        return out;
+    }
+
+    private static long[] broadcast(long value, int length) {
+        long[] out = new long[length];
+        Arrays.fill(out, value);
+        return out;
+    }
+
+    private static double[] broadcast(double value, int length) {
+        double[] out = new double[length];
+        Arrays.fill(out, value);
+        return out;
+    }
+
+    private static void checkLengths(String operation, int a, int b) {
+        if (a != b) {
+            throw new RuntimeException("Math " + operation + " requires operands of the same length, but got " + a + " and " + b);
+        }
+    }
+}
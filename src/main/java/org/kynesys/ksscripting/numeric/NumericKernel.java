@@ -0,0 +1,9 @@
+package org.kynesys.ksscripting.numeric;
+
+/**
+ * Folds args[from..] with one operation, specialized for one precision rank.
+ */
+@FunctionalInterface
+public interface NumericKernel {
+    Number apply(Object[] args, int from);
+}
@@ -0,0 +1,348 @@
+package org.kynesys.ksscripting.numeric;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+
+/**
+ * Primitive kernels behind the Math command, one per operation and precision rank.
+ * Precision rank: 0 is int, 1 is long, 2 is float, 3 is double, 4 is BigDecimal.
+ * Kernels accumulate in a primitive local and box once for the result.
+ * Integer arithmetic that overflows is redone in long; long arithmetic that overflows throws an ArithmeticException.
+ */
+public class NumericKernels {
+
+    public static final int INT = 0;
+    public static final int LONG = 1;
+    public static final int FLOAT = 2;
+    public static final int DOUBLE = 3;
+    public static final int BIG_DECIMAL = 4;
+
+    public static int rankOf(Object value) {
+        if (value instanceof Integer) return INT;
+        if (value instanceof Long) return LONG;
+        if (value instanceof Float) return FLOAT;
+        if (value instanceof Double) return DOUBLE;
+        if (value instanceof BigDecimal) return BIG_DECIMAL;
+        throw new RuntimeException("Math operation requires all arguments to be numbers or BigDecimal, but got " + (value == null ? "null" : value.getClass().getSimpleName()));
+    }
+
+    // Highest rank of args[from..]
+    public static int rankOf(Object[] args, int from) {
+        int rank = INT;
+        for (int i = from; i < args.length; i++) {
+            rank = Math.max(rank, rankOf(args[i]));
+        }
+        return rank;
+    }
+
+    public static NumericKernel select(String operation, int rank) {
+        return switch (operation) {
+            case "add" -> switch (rank) {
+                case INT -> NumericKernels::addInt;
+                case LONG -> NumericKernels::addLong;
+                case FLOAT -> NumericKernels::addFloat;
+                case DOUBLE -> NumericKernels::addDouble;
+                default -> NumericKernels::addBigDecimal;
+            };
+            case "subtract" -> switch (rank) {
+                case INT -> NumericKernels::subtractInt;
+                case LONG -> NumericKernels::subtractLong;
+                case FLOAT -> NumericKernels::subtractFloat;
+                case DOUBLE -> NumericKernels::subtractDouble;
+                default -> NumericKernels::subtractBigDecimal;
+            };
+            case "multiply" -> switch (rank) {
+                case INT -> NumericKernels::multiplyInt;
+                case LONG -> NumericKernels::multiplyLong;
+                case FLOAT -> NumericKernels::multiplyFloat;
+                case DOUBLE -> NumericKernels::multiplyDouble;
+                default -> NumericKernels::multiplyBigDecimal;
+            };
+            case "divide" -> switch (rank) {
+                case INT -> NumericKernels::divideInt;
+                case LONG -> NumericKernels::divideLong;
+                case FLOAT -> NumericKernels::divideFloat;
+                case DOUBLE -> NumericKernels::divideDouble;
+                default -> NumericKernels::divideBigDecimal;
+            };
+            case "mod" -> switch (rank) {
+                case INT -> NumericKernels::modInt;
+                case LONG -> NumericKernels::modLong;
+                case FLOAT -> NumericKernels::modFloat;
+                case DOUBLE -> NumericKernels::modDouble;
+                default -> NumericKernels::modBigDecimal;
+            };
+            case "pow" -> rank == BIG_DECIMAL ? NumericKernels::powBigDecimal : (args, from) -> powDouble(args, from, rank);
+            case "sqrt" -> rank == BIG_DECIMAL ? NumericKernels::sqrtBigDecimal : (args, from) -> sqrtDouble(args, from, rank);
+            default -> throw new RuntimeException("Invalid operation: " + operation);
+        };
+    }
+
+    // int
+
+    public static Number addInt(Object[] args, int from) {
+        int acc = (Integer) args[from];
+        for (int i = from + 1; i < args.length; i++) {
+            long r = (long) acc + (Integer) args[i];
+            if (r != (int) r) return addLong(args, from);
+            acc = (int) r;
+        }
+        return acc;
+    }
+
+    public static Number subtractInt(Object[] args, int from) {
+        int acc = (Integer) args[from];
+        for (int i = from + 1; i < args.length; i++) {
+            long r = (long) acc - (Integer) args[i];
+            if (r != (int) r) return subtractLong(args, from);
+            acc = (int) r;
+        }
+        return acc;
+    }
+
+    public static Number multiplyInt(Object[] args, int from) {
+        int acc = (Integer) args[from];
+        for (int i = from + 1; i < args.length; i++) {
+            long r = (long) acc * (Integer) args[i];
+            if (r != (int) r) return multiplyLong(args, from);
+            acc = (int) r;
+        }
+        return acc;
+    }
+
+    public static Number divideInt(Object[] args, int from) {
+        int acc = (Integer) args[from];
+        for (int i = from + 1; i < args.length; i++) {
+            int b = (Integer) args[i];
+            if (acc == Integer.MIN_VALUE && b == -1) return divideLong(args, from);
+            acc = acc / b;
+        }
+        return acc;
+    }
+
+    public static Number modInt(Object[] args, int from) {
+        int acc = (Integer) args[from];
+        for (int i = from + 1; i < args.length; i++) {
+            acc = acc % (Integer) args[i];
+        }
+        return acc;
+    }
+
+    // long
+
+    public static Number addLong(Object[] args, int from) {
+        long acc = ((Number) args[from]).longValue();
+        for (int i = from + 1; i < args.length; i++) {
+            acc = Math.addExact(acc, ((Number) args[i]).longValue());
+        }
+        return acc;
+    }
+
+    public static Number subtractLong(Object[] args, int from) {
+        long acc = ((Number) args[from]).longValue();
+        for (int i = from + 1; i < args.length; i++) {
+            acc = Math.subtractExact(acc, ((Number) args[i]).longValue());
+        }
+        return acc;
+    }
+
+    public static Number multiplyLong(Object[] args, int from) {
+        long acc = ((Number) args[from]).longValue();
+        for (int i = from + 1; i < args.length; i++) {
+            acc = Math.multiplyExact(acc, ((Number) args[i]).longValue());
+        }
+        return acc;
+    }
+
+    public static Number divideLong(Object[] args, int from) {
+        long acc = ((Number) args[from]).longValue();
+        for (int i = from + 1; i < args.length; i++) {
+            acc = Math.divideExact(acc, ((Number) args[i]).longValue());
+        }
+        return acc;
+    }
+
+    public static Number modLong(Object[] args, int from) {
+        long acc = ((Number) args[from]).longValue();
+        for (int i = from + 1; i < args.length; i++) {
+            acc = acc % ((Number) args[i]).longValue();
+        }
+        return acc;
+    }
+
+    // float
+
+    public static Number addFloat(Object[] args, int from) {
+        float acc = ((Number) args[from]).floatValue();
+        for (int i = from + 1; i < args.length; i++) {
+            acc += ((Number) args[i]).floatValue();
+        }
+        return acc;
+    }
+
+    public static Number subtractFloat(Object[] args, int from) {
+        float acc = ((Number) args[from]).floatValue();
+        for (int i = from + 1; i < args.length; i++) {
+            acc -= ((Number) args[i]).floatValue();
+        }
+        return acc;
+    }
+
+    public static Number multiplyFloat(Object[] args, int from) {
+        float acc = ((Number) args[from]).floatValue();
+        for (int i = from + 1; i < args.length; i++) {
+            acc *= ((Number) args[i]).floatValue();
+        }
+        return acc;
+    }
+
+    public static Number divideFloat(Object[] args, int from) {
+        float acc = ((Number) args[from]).floatValue();
+        for (int i = from + 1; i < args.length; i++) {
+            acc /= ((Number) args[i]).floatValue();
+        }
+        return acc;
+    }
+
+    public static Number modFloat(Object[] args, int from) {
+        float acc = ((Number) args[from]).floatValue();
+        for (int i = from + 1; i < args.length; i++) {
+            acc %= ((Number) args[i]).floatValue();
+        }
+        return acc;
+    }
+
+    // double
+
+    public static Number addDouble(Object[] args, int from) {
+        double acc = ((Number) args[from]).doubleValue();
+        for (int i = from + 1; i < args.length; i++) {
+            acc += ((Number) args[i]).doubleValue();
+        }
+        return acc;
+    }
+
+    public static Number subtractDouble(Object[] args, int from) {
+        double acc = ((Number) args[from]).doubleValue();
+        for (int i = from + 1; i < args.length; i++) {
+            acc -= ((Number) args[i]).doubleValue();
+        }
+        return acc;
+    }
+
+    public static Number multiplyDouble(Object[] args, int from) {
+        double acc = ((Number) args[from]).doubleValue();
+        for (int i = from + 1; i < args.length; i++) {
+            acc *= ((Number) args[i]).doubleValue();
+        }
+        return acc;
+    }
+
+    public static Number divideDouble(Object[] args, int from) {
+        double acc = ((Number) args[from]).doubleValue();
+        for (int i = from + 1; i < args.length; i++) {
+            acc /= ((Number) args[i]).doubleValue();
+        }
+        return acc;
+    }
+
+    public static Number modDouble(Object[] args, int from) {
+        double acc = ((Number) args[from]).doubleValue();
+        for (int i = from + 1; i < args.length; i++) {
+            acc %= ((Number) args[i]).doubleValue();
+        }
+        return acc;
+    }
+
+    // pow and sqrt always produce a double; the running value is narrowed back to the rank before every step, as Math always did
+    private static Number powDouble(Object[] args, int from, int rank) {
+        double acc = ((Number) args[from]).doubleValue();
+        for (int i = from + 1; i < args.length; i++) {
+            Number b = (Number) args[i];
+            acc = switch (rank) {
+                case INT -> Math.pow((int) acc, b.intValue());
+                case LONG -> Math.pow((long) acc, b.longValue());
+                case FLOAT -> Math.pow((float) acc, b.floatValue());
+                default -> Math.pow(acc, b.doubleValue());
+            };
+        }
+        return acc;
+    }
+
+    private static Number sqrtDouble(Object[] args, int from, int rank) {
+        double acc = ((Number) args[from]).doubleValue();
+        for (int i = from + 1; i < args.length; i++) {
+            acc = switch (rank) {
+                case INT -> Math.sqrt((int) acc);
+                case LONG -> Math.sqrt((long) acc);
+                case FLOAT -> Math.sqrt((float) acc);
+                default -> Math.sqrt(acc);
+            };
+        }
+        return acc;
+    }
+
+    // BigDecimal, other numbers are converted exactly
+
+    public static Number addBigDecimal(Object[] args, int from) {
+        BigDecimal acc = toBigDecimal(args[from]);
+        for (int i = from + 1; i < args.length; i++) {
+            acc = acc.add(toBigDecimal(args[i]));
+        }
+        return acc;
+    }
+
+    public static Number subtractBigDecimal(Object[] args, int from) {
+        BigDecimal acc = toBigDecimal(args[from]);
+        for (int i = from + 1; i < args.length; i++) {
+            acc = acc.subtract(toBigDecimal(args[i]));
+        }
+        return acc;
+    }
+
+    public static Number multiplyBigDecimal(Object[] args, int from) {
+        BigDecimal acc = toBigDecimal(args[from]);
+        for (int i = from + 1; i < args.length; i++) {
+            acc = acc.multiply(toBigDecimal(args[i]));
+        }
+        return acc;
+    }
+
+    public static Number divideBigDecimal(Object[] args, int from) {
+        BigDecimal acc = toBigDecimal(args[from]);
+        for (int i = from + 1; i < args.length; i++) {
+            acc = acc.divide(toBigDecimal(args[i]));
+        }
+        return acc;
+    }
+
+    public static Number modBigDecimal(Object[] args, int from) {
+        BigDecimal acc = toBigDecimal(args[from]);
+        for (int i = from + 1; i < args.length; i++) {
+            acc = acc.remainder(toBigDecimal(args[i]));
+        }
+        return acc;
+    }
+
+    private static Number powBigDecimal(Object[] args, int from) {
+        BigDecimal acc = toBigDecimal(args[from]);
+        for (int i = from + 1; i < args.length; i++) {
+            acc = acc.pow(((Number) args[i]).intValue());
+        }
+        return acc;
+    }
+
+    private static Number sqrtBigDecimal(Object[] args, int from) {
+        BigDecimal acc = toBigDecimal(args[from]);
+        for (int i = from + 1; i < args.length; i++) {
+            acc = acc.sqrt(MathContext.DECIMAL128);
+        }
+        return acc;
+    }
+
+    public static BigDecimal toBigDecimal(Object value) {
+        if (value instanceof BigDecimal decimal) return decimal;
+        if (value instanceof Integer || value instanceof Long) return BigDecimal.valueOf(((Number) value).longValue());
+        return new BigDecimal(((Number) value).doubleValue());
+    }
+}
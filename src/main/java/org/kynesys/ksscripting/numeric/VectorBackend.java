@@ -0,0 +1,34 @@
+package org.kynesys.ksscripting.numeric;
+
+/**
+ * Vector forms of the BulkKernels loops, implemented by VectorKernels in the optional vector source set (src/vector/java).
+ * BulkKernels loads the implementation by name, so the main sources compile and run without jdk.incubator.vector.
+ */
+interface VectorBackend {
+
+    long sum(long[] a);
+
+    double sum(double[] a);
+
+    long min(long[] a);
+
+    long max(long[] a);
+
+    double min(double[] a);
+
+    double max(double[] a);
+
+    double dot(double[] a, double[] b);
+
+    long[] add(long[] a, long[] b);
+
+    long[] subtract(long[] a, long[] b);
+
+    double[] add(double[] a, double[] b);
+
+    double[] subtract(double[] a, double[] b);
+
+    double[] multiply(double[] a, double[] b);
+
+    double[] divide(double[] a, double[] b);
+}
@@ -0,0 +1,80 @@
+package org.kynesys.ksscripting.objects;
+
+import lombok.Getter;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Handle to an asynchronous script task.
+ * join waits for the result and rethrows the task's failure; poll returns the result if finished, or null otherwise.
+ */
+@Getter
+public class AsyncTaskObject {
+
+    private final String name;
+    private final Future<Object> future;
+
+    public AsyncTaskObject(String name, Future<Object> future) {
+        this.name = name;
+        this.future = future;
+    }
+
+    public Object join() throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Asynchronous task failed: " + name, e.getCause());
+        }
+    }
+
+    // Returns null if the task did not finish in time
+    public Object join(long timeoutMillis) throws InterruptedException {
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Asynchronous task failed: " + name, e.getCause());
+        } catch (TimeoutException e) {
+            return null;
+        }
+    }
+
+    public Object poll() {
+        if (!future.isDone() || future.isCancelled()) {
+            return null;
+        }
+        try {
+            return future.get();
+        } catch (ExecutionException | InterruptedException | CancellationException e) {
+            return null;
+        }
+    }
+
+    public boolean cancel() {
+        return future.cancel(true);
+    }
+
+    public boolean isDone() {
+        return future.isDone();
+    }
+
+    public boolean isAlive() {
+        return !future.isDone();
+    }
+
+    public boolean isCancelled() {
+        return future.isCancelled();
+    }
+
+    public boolean isFailed() {
+        return future.state() == Future.State.FAILED;
+    }
+
+    @Override
+    public String toString() {
+        return "AsyncTask: " + name + " (" + future.state() + ")";
+    }
+}
@@ -4,33 +4,82 @@ import lombok.Getter;
 
 import lombok.Setter;
 import org.kynesys.ksscripting.KSScriptingInterpreter;
+import org.kynesys.ksscripting.compiler.CommandNode;
+import org.kynesys.ksscripting.compiler.CompiledScript;
+import org.kynesys.ksscripting.compiler.KSScriptingCompiler;
 import org.kynesys.lwks.KSExecutionSession;
 
 import java.util.ArrayList;
 
+/**
+ * Named list of script lines that can be run repeatedly.
+ * Lines are compiled when added; the executable snapshot is rebuilt only after lines change.
+ */
 @Getter
 public class CodeBlockObject implements Runnable {
 
     private final String name;
     @Setter private KSExecutionSession session;
     private final ArrayList<String> line;
-    private int executionCount = 0;
+    private final ArrayList<CommandNode> compiledLine;
+    private volatile CompiledScript compiledScript; // null when lines changed since the last run
+
+    // Execution statistics, times in nanoseconds
+    private volatile int executionCount = 0;
+    private volatile long totalExecutionTime = 0;
+    private volatile long maxExecutionTime = 0;
 
     public CodeBlockObject(String name) {
         this.name = name;
         this.line = new ArrayList<>();
+        this.compiledLine = new ArrayList<>();
     }
 
-    public void addCodeLine(String code) {
-//        System.out.println("Adding code line: " + code);
+    public synchronized void addCodeLine(String code) {
         line.add(code);
+        compiledLine.add(KSScriptingCompiler.compileLine(code));
+        compiledScript = null;
     }
 
-    public Object run(KSExecutionSession session) {
+    // Adds an already split line; parts that are not strings are kept as objects
+    public synchronized void addCodeLine(Object[] parts) {
+        CommandNode compiled = KSScriptingCompiler.compileParts(parts);
+        line.add(compiled.toString());
+        compiledLine.add(compiled);
+        compiledScript = null;
+    }
+
+    public CompiledScript getCompiledScript() {
+        CompiledScript script = compiledScript;
+        if (script == null) {
+            synchronized (this) {
+                script = compiledScript;
+                if (script == null) {
+                    script = new CompiledScript(line.toArray(new String[0]), compiledLine.toArray(new CommandNode[0]));
+                    compiledScript = script;
+                }
+            }
+        }
+        return script;
+    }
+
+    public long getAverageExecutionTime() {
+        int count = executionCount;
+        return count == 0 ? 0 : totalExecutionTime / count;
+    }
+
+    private synchronized void recordExecution(long elapsed) {
         executionCount += 1;
-//        System.out.println("Running code block: " + name);
+        totalExecutionTime += elapsed;
+        if (elapsed > maxExecutionTime) {
+            maxExecutionTime = elapsed;
+        }
+    }
+
+    public Object run(KSExecutionSession session) {
+        long startTime = System.nanoTime();
         String maskCodeblock = session.getEnvironment().getEnvVar().getOrDefault("MaskCodeblock", "");
-        String[] lines = line.toArray(new String[0]);
+        CompiledScript lines = getCompiledScript();
         try {
             boolean maskCurrentCodeblock = maskCodeblock.contains(name + ";") || maskCodeblock.equals("1");
             if (maskCurrentCodeblock) {
@@ -47,6 +96,8 @@ public class CodeBlockObject implements Runnable {
             return returned;
         } catch (Exception e) {
             throw new RuntimeException("Error executing code block: " + name, e);
+        } finally {
+            recordExecution(System.nanoTime() - startTime);
         }
     }
 
@@ -57,6 +108,8 @@ public class CodeBlockObject implements Runnable {
 
     @Override
     public String toString() {
-        return "Codeblock: " + name + " (" + line.size() + " lines, " + executionCount + " executions)";
+        return "Codeblock: " + name + " (" + line.size() + " lines, " + executionCount + " executions, "
+                + String.format("%.3f", getAverageExecutionTime() / 1_000_000.0) + " ms avg, "
+                + String.format("%.3f", maxExecutionTime / 1_000_000.0) + " ms max)";
     }
 }
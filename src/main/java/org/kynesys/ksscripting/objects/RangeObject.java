@@ -0,0 +1,91 @@
+package org.kynesys.ksscripting.objects;
+
+import lombok.Getter;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+import java.util.function.IntConsumer;
+
+/**
+ * Read-only list of the integers start, start + step, ... up to end (exclusive).
+ * Values are computed on access, so a range of any length takes constant memory.
+ */
+@Getter
+public class RangeObject extends AbstractList<Integer> implements RandomAccess {
+
+    private final int start;
+    private final int end;
+    private final int step;
+    private final int length;
+
+    public RangeObject(int start, int end, int step) {
+        if (step == 0) {
+            throw new IllegalArgumentException("Step cannot be zero");
+        }
+        this.start = start;
+        this.end = end;
+        this.step = step;
+
+        long distance = (long) end - start;
+        long count = 0;
+        if (step > 0 && distance > 0) {
+            count = (distance + step - 1) / step;
+        } else if (step < 0 && distance < 0) {
+            count = (-distance + -(long) step - 1) / -(long) step;
+        }
+        if (count > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Range from " + start + " to " + end + " with step " + step + " has " + count
+                    + " elements, more than the maximum of " + Integer.MAX_VALUE);
+        }
+        this.length = (int) count;
+    }
+
+    public int getInt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for range of length " + length);
+        }
+        return start + index * step;
+    }
+
+    // Visits every value without boxing
+    public void forEachInt(IntConsumer action) {
+        int value = start;
+        for (int i = 0; i < length; i++) {
+            action.accept(value);
+            value += step;
+        }
+    }
+
+    @Override
+    public Integer get(int index) {
+        return getInt(index);
+    }
+
+    @Override
+    public int size() {
+        return length;
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        if (!(o instanceof Integer value)) {
+            return -1;
+        }
+        long offset = (long) value - start;
+        if (offset % step != 0) {
+            return -1;
+        }
+        long index = offset / step;
+        return index >= 0 && index < length ? (int) index : -1;
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+        return indexOf(o);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return indexOf(o) >= 0;
+    }
+}
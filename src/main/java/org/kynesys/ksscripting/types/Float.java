@@ -9,6 +9,16 @@ public class Float  implements KSScriptingExecutable {
         return java.lang.Float.class.getName();
     }
 
+    @Override
+    public boolean isStateless() {
+        return true;
+    }
+
+    @Override
+    public boolean isPure() {
+        return true;
+    }
+
     @Override
     public Object execute(Object[] args, KSExecutionSession session) throws Exception {
         if (args == null || args.length != 1) {
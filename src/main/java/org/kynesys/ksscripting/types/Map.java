@@ -11,6 +11,11 @@ public class Map implements KSScriptingExecutable {
         return java.util.Map.class.getName();
     }
 
+    @Override
+    public boolean isStateless() {
+        return true;
+    }
+
     @Override
     public Object execute(Object[] args, KSExecutionSession session) throws Exception {
         // Usage: Map <Map>
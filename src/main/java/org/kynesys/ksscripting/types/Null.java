@@ -10,6 +10,11 @@ public class Null implements KSScriptingExecutable {
         return Integer.class.getName();
     }
 
+    @Override
+    public boolean isStateless() {
+        return true;
+    }
+
     @Override
     public Object execute(Object[] args, KSExecutionSession session) throws Exception {
         return null;
@@ -0,0 +1,19 @@
+package org.kynesys.lwks;
+
+/**
+ * Per compiled line storage for commands that cache decisions made from their arguments
+ * (e.g. the numeric kernel for a call shape, or the compiled body of a loop).
+ * The same compiled line can run on several threads at once, so the state must be an immutable object; a lost update only costs a re-selection.
+ */
+public class KSCallSite {
+
+    private Object state;
+
+    public Object getState() {
+        return state;
+    }
+
+    public void setState(Object state) {
+        this.state = state;
+    }
+}
@@ -0,0 +1,105 @@
+package org.kynesys.lwks;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Resolves command names to commands for a session.
+ * Explicit registrations win over package path lookup. Lookups are cached until the session package paths change.
+ */
+public class KSCommandRegistry {
+
+    // Shared by all sessions: fully qualified class name -> class, or MISSING if it does not exist
+    private static final Class<?> MISSING = void.class;
+    private static final ConcurrentHashMap<String, Class<?>> classCache = new ConcurrentHashMap<>();
+
+    private final KSExecutionSession session;
+    private final ConcurrentHashMap<String, KSResolvedCommand> registered = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, KSResolvedCommand> resolved = new ConcurrentHashMap<>();
+    private volatile int resolvedPackagePathsVersion;
+    private final AtomicInteger registrationCount = new AtomicInteger();
+
+    public KSCommandRegistry(KSExecutionSession session) {
+        this.session = session;
+        this.resolvedPackagePathsVersion = session.getPackagePathsVersion();
+    }
+
+    public void register(String name, Supplier<? extends KSScriptingExecutable> factory) {
+        registered.put(name, new KSResolvedCommand(name, factory));
+        registrationCount.incrementAndGet();
+    }
+
+    public void unregister(String name) {
+        registered.remove(name);
+        registrationCount.incrementAndGet();
+    }
+
+    // Changes whenever a name could start resolving to a different command (registrations or package paths changed)
+    public int getVersion() {
+        return registrationCount.get() + session.getPackagePathsVersion();
+    }
+
+    public KSResolvedCommand resolve(String command) {
+        KSResolvedCommand entry = registered.get(command);
+        if (entry != null) {
+            return entry;
+        }
+
+        // Drop cached lookups if package paths changed since they were made
+        int version = session.getPackagePathsVersion();
+        if (version != resolvedPackagePathsVersion) {
+            resolved.clear();
+            resolvedPackagePathsVersion = version;
+        }
+
+        entry = resolved.get(command);
+        if (entry != null) {
+            return entry;
+        }
+
+        // If command contains ".", use it as the full class name
+        // Else, use the first package path that has the class
+        Class<?> commandClass = null;
+        if (command.contains(".")) {
+            commandClass = findClass(command);
+            if (commandClass == null) {
+                throw new RuntimeException("Command class not found (Auto pathing not used): " + command);
+            }
+        } else {
+            for (String packagePath : session.getPackagePaths()) {
+                commandClass = findClass(packagePath + "." + command);
+                if (commandClass != null) {
+                    break;
+                }
+            }
+        }
+        if (commandClass == null) {
+            throw new RuntimeException("Command class not found: " + command);
+        }
+
+        // Check if commandClass is a subclass of KSScriptingExecutable
+        if (!KSScriptingExecutable.class.isAssignableFrom(commandClass)) {
+            throw new RuntimeException("Command class does not implement KSScriptingExecutable");
+        }
+
+        entry = new KSResolvedCommand(command, commandClass);
+        resolved.put(command, entry);
+        return entry;
+    }
+
+    // Class.forName with the result (including misses) remembered, so a miss costs one exception per name.
+    // Linkage errors (a class that exists but fails to load or initialize) are not cached and propagate to the caller.
+    public static Class<?> findClass(String className) {
+        Class<?> found = classCache.get(className);
+        if (found == null) {
+            try {
+                found = Class.forName(className);
+            } catch (ClassNotFoundException e) {
+                found = MISSING;
+            }
+            classCache.put(className, found);
+        }
+        return found == MISSING ? null : found;
+    }
+}
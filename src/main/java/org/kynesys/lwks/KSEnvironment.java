@@ -5,10 +5,13 @@ import lombok.Getter;
 import lombok.Setter;
 
 import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+// Environment variables are a concurrent map, so asynchronous tasks can read and write them safely
 @Getter
 public class KSEnvironment {
-    private HashMap<String, String> envVar = new HashMap<>();
+    private final Map<String, String> envVar = new ConcurrentHashMap<>();
     private final KSUser realUser;
     @Setter private KSUser privilegedUser;
 
@@ -22,10 +25,11 @@ public class KSEnvironment {
         this.privilegedUser = privilegedUser;
     }
 
+    // The given map is copied
     public KSEnvironment(KSUser realUser, KSUser privilegedUser, HashMap<String, String> envVar) {
         this.realUser = realUser;
         this.privilegedUser = privilegedUser;
-        this.envVar = envVar;
+        this.envVar.putAll(envVar);
     }
 
     public KSEnvironment(KSUser realUser, KSUser privilegedUser, String[] envVarLines) {
@@ -2,28 +2,124 @@ package org.kynesys.lwks;
 
 
 import lombok.Getter;
-import lombok.Setter;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 
+// State shared by every command of a session, including Asynchronize tasks. Variables and environment are concurrent, but a
+// read-modify-write across commands is not atomic. Child sessions and scopes read through to their parent; termination is the root's.
 @Getter
 public class KSExecutionSession {
     private final KSEnvironment environment;
-    private final HashMap<Object, Object> complexVariables = new HashMap<>();
-    private final ArrayList<String> packagePaths = new ArrayList<>();
-    @Setter private boolean isSessionTerminated = false;
-    @Setter private Object terminatingValue = null;
-    @Setter private Object lastResult;
+    private final KSVariables complexVariables;
+    private final ArrayList<String> packagePaths;
+    private final KSCommandRegistry commandRegistry;
+    private final KSProfiler profiler;
+    private final KSTaskExecutor taskExecutor;
+    private final KSExecutionSession parent; // null for a root session
+    private final boolean isolated; // false for loop scopes, which share everything but their local keys with the parent
+    private volatile boolean isSessionTerminated = false; // only the root session's is used
+    private volatile Object terminatingValue = null;
+    private volatile Object lastResult;
 
     public KSExecutionSession(KSEnvironment environment) {
         this.environment = environment;
+        this.parent = null;
+        this.isolated = true;
+        this.complexVariables = new KSVariableStore();
+        this.packagePaths = new KSPackagePathList();
+        this.profiler = new KSProfiler();
+        this.taskExecutor = new KSTaskExecutor(environment);
 
         // Add default package paths
         packagePaths.add("org.kynesys.ksscripting.commands");
         packagePaths.add("org.kynesys.ksscripting.types");
         packagePaths.add("org.kynesys.ksscripting.graphickit");
+
+        this.commandRegistry = new KSCommandRegistry(this);
+    }
+
+    // Child session: variables read through to the parent; writes stay local, except for a loop scope's non-local keys.
+    // Environment, package paths, commands, profiler, executor and termination are the parent's.
+    private KSExecutionSession(KSExecutionSession parent, Object[] localKeys) {
+        this.environment = parent.environment;
+        this.parent = parent;
+        this.isolated = localKeys == null;
+        this.packagePaths = parent.packagePaths;
+        this.profiler = parent.profiler;
+        this.taskExecutor = parent.taskExecutor;
+        this.commandRegistry = parent.commandRegistry;
+        this.complexVariables = localKeys == null
+                ? new KSScopedVariables(parent.complexVariables)
+                : new KSLoopScopeVariables(parent.complexVariables, localKeys);
+    }
+
+    // Isolated child, created in O(1): sees the parent's variables, but its own writes never reach the parent
+    public KSExecutionSession createChildSession() {
+        return new KSExecutionSession(this, null);
+    }
+
+    // Loop scope, created in O(number of keys): only the given keys are local; every other write goes to the parent
+    public KSExecutionSession createScope(Object... localKeys) {
+        return new KSExecutionSession(this, localKeys);
+    }
+
+    // Sets the index-th key given to createScope, without looking it up; only valid on a loop scope
+    public void setLocal(int index, Object value) {
+        ((KSLoopScopeVariables) complexVariables).setLocal(index, value);
+    }
+
+    // Changes whenever packagePaths is modified
+    public int getPackagePathsVersion() {
+        return ((KSPackagePathList) packagePaths).getModificationCount();
+    }
+
+    // Stops further execution in every thread of this session and of its parents
+    public void terminate(Object value) {
+        if (parent != null) {
+            parent.terminate(value);
+            return;
+        }
+        terminatingValue = value;
+        isSessionTerminated = true;
+    }
+
+    // Prefer terminate(value), which sets both; these act on the root session too, so a scope never keeps its own state
+    public void setSessionTerminated(boolean terminated) {
+        if (parent != null) {
+            parent.setSessionTerminated(terminated);
+            return;
+        }
+        isSessionTerminated = terminated;
     }
+
+    public void setTerminatingValue(Object value) {
+        if (parent != null) {
+            parent.setTerminatingValue(value);
+            return;
+        }
+        terminatingValue = value;
+    }
+
+    public boolean isSessionTerminated() {
+        return parent != null ? parent.isSessionTerminated() : isSessionTerminated;
+    }
+
+    public Object getTerminatingValue() {
+        return parent != null ? parent.getTerminatingValue() : terminatingValue;
+    }
+
+    public Object getLastResult() {
+        return isolated ? lastResult : parent.getLastResult();
+    }
+
+    public void setLastResult(Object lastResult) {
+        if (isolated) {
+            this.lastResult = lastResult;
+        } else {
+            parent.setLastResult(lastResult);
+        }
+    }
+
     public void setComplexVariable(Object key, Object value) {
         complexVariables.put(key, value);
     }
@@ -31,4 +127,17 @@ public class KSExecutionSession {
     public Object getComplexVariable(Object key) {
         return complexVariables.get(key);
     }
-}
\ No newline at end of file
+
+    // Slot based access, for lookups resolved ahead of time through KSSymbolTable.slotOf (which must have returned a slot)
+    public Object getVariable(int slot) {
+        return complexVariables.getSlot(slot);
+    }
+
+    public void setVariable(int slot, Object value) {
+        if (value == null) {
+            complexVariables.removeSlot(slot);
+        } else {
+            complexVariables.setSlot(slot, value);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package org.kynesys.lwks;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Variables of a loop scope: only the keys given at creation are local, every other read and write goes to the parent.
+ * The local values are a small array parallel to the keys, so creating a scope costs the same however many variables exist.
+ * Removing a local that the parent still has leaves a marker, so it stays hidden from this scope.
+ */
+class KSLoopScopeVariables extends KSVariables {
+
+    private static final Object REMOVED = KSScopedVariables.REMOVED;
+
+    private final KSVariables parent;
+    private final Object[] localKeys;
+    private final int[] localSlots; // parallel to localKeys, -1 for a name without a slot
+    private final AtomicReferenceArray<Object> localValues;
+
+    KSLoopScopeVariables(KSVariables parent, Object[] localKeys) {
+        this.parent = parent;
+        this.localKeys = localKeys;
+        this.localSlots = new int[localKeys.length];
+        for (int i = 0; i < localKeys.length; i++) {
+            localSlots[i] = KSSymbolTable.slotOf(localKeys[i]);
+        }
+        this.localValues = new AtomicReferenceArray<>(localKeys.length);
+    }
+
+    // Sets the index-th local key, without looking it up
+    void setLocal(int index, Object value) {
+        localValues.set(index, value);
+    }
+
+    private int indexOfSlot(int slot) {
+        for (int i = 0; i < localSlots.length; i++) {
+            if (localSlots[i] == slot) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int indexOfName(Object name) {
+        for (int i = 0; i < localKeys.length; i++) {
+            if (localSlots[i] < 0 && localKeys[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public Object getSlot(int slot) {
+        int index = indexOfSlot(slot);
+        if (index >= 0) {
+            Object value = localValues.get(index);
+            if (value != null) {
+                return value == REMOVED ? null : value;
+            }
+        }
+        return parent.getSlot(slot);
+    }
+
+    @Override
+    public void setSlot(int slot, Object value) {
+        int index = indexOfSlot(slot);
+        if (index < 0) {
+            parent.setSlot(slot, value);
+        } else {
+            localValues.set(index, value);
+        }
+    }
+
+    @Override
+    public void removeSlot(int slot) {
+        int index = indexOfSlot(slot);
+        if (index < 0) {
+            parent.removeSlot(slot);
+        } else {
+            localValues.set(index, parent.getSlot(slot) != null ? REMOVED : null);
+        }
+    }
+
+    @Override
+    Object getNamed(Object name) {
+        int index = indexOfName(name);
+        if (index >= 0) {
+            Object value = localValues.get(index);
+            if (value != null) {
+                return value == REMOVED ? null : value;
+            }
+        }
+        return parent.getNamed(name);
+    }
+
+    @Override
+    void setNamed(Object name, Object value) {
+        int index = indexOfName(name);
+        if (index < 0) {
+            parent.setNamed(name, value);
+        } else {
+            localValues.set(index, value);
+        }
+    }
+
+    @Override
+    void removeNamed(Object name) {
+        int index = indexOfName(name);
+        if (index < 0) {
+            parent.removeNamed(name);
+        } else {
+            localValues.set(index, parent.getNamed(name) != null ? REMOVED : null);
+        }
+    }
+
+    @Override
+    Map<Object, Object> snapshot() {
+        Map<Object, Object> merged = new LinkedHashMap<>(parent.snapshot());
+        for (int i = 0; i < localKeys.length; i++) {
+            Object value = localValues.get(i);
+            if (value == REMOVED) {
+                merged.remove(localKeys[i]);
+            } else if (value != null) {
+                merged.put(localKeys[i], value);
+            }
+        }
+        return merged;
+    }
+}
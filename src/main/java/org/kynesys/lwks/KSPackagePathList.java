@@ -0,0 +1,20 @@
+package org.kynesys.lwks;
+
+import java.util.ArrayList;
+
+/**
+ * Package path list that exposes a modification counter, so cached command lookups know when to re-resolve.
+ */
+class KSPackagePathList extends ArrayList<String> {
+
+    // ArrayList counts structural changes only; replacing an entry must invalidate as well
+    @Override
+    public String set(int index, String element) {
+        modCount++;
+        return super.set(index, element);
+    }
+
+    int getModificationCount() {
+        return modCount;
+    }
+}
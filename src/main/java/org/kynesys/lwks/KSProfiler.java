@@ -0,0 +1,203 @@
+package org.kynesys.lwks;
+
+import lombok.Getter;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Opt-in execution profiler owned by a session.
+ * While enabled, every executed command is recorded per command class and per line source (nested {...} expansions are their own lines),
+ * with call count, total (inclusive) time, self time and allocated bytes, plus a collapsed stack per call path for flame graphs.
+ * When disabled the interpreter only pays for one volatile read per command.
+ */
+public class KSProfiler {
+
+    @Getter private volatile boolean enabled = false;
+
+    private final Map<String, Entry> byCommand = new ConcurrentHashMap<>();
+    private final Map<String, Entry> byLine = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> collapsedStacks = new ConcurrentHashMap<>();
+    private final ThreadLocal<ArrayDeque<Frame>> stacks = ThreadLocal.withInitial(ArrayDeque::new);
+
+    private static final com.sun.management.ThreadMXBean threadBean = allocationBean();
+
+    public void start() {
+        enabled = true;
+    }
+
+    public void stop() {
+        enabled = false;
+    }
+
+    public void reset() {
+        byCommand.clear();
+        byLine.clear();
+        collapsedStacks.clear();
+    }
+
+    public boolean hasData() {
+        return !byCommand.isEmpty();
+    }
+
+    public Frame enter(String commandName, Class<?> commandClass, String lineSource) {
+        ArrayDeque<Frame> stack = stacks.get();
+        Frame parent = stack.peek();
+        String path = parent == null ? commandName : parent.path + ";" + commandName;
+        Frame frame = new Frame(commandClass == null ? commandName : commandClass.getName(), lineSource, path, parent);
+        stack.push(frame);
+        frame.startAllocated = allocatedBytes();
+        frame.startTime = System.nanoTime();
+        return frame;
+    }
+
+    public void exit(Frame frame) {
+        long elapsed = System.nanoTime() - frame.startTime;
+        long allocated = threadBean == null ? 0 : allocatedBytes() - frame.startAllocated;
+        ArrayDeque<Frame> stack = stacks.get();
+        // Pop down to this frame, in case a nested frame was left behind by an error
+        Frame top = stack.poll();
+        while (top != null && top != frame) {
+            top = stack.poll();
+        }
+
+        long self = elapsed - frame.childTime;
+        byCommand.computeIfAbsent(frame.commandKey, k -> new Entry(k)).record(elapsed, self, allocated);
+        byLine.computeIfAbsent(frame.lineSource, k -> new Entry(k)).record(elapsed, self, allocated);
+        collapsedStacks.computeIfAbsent(frame.path, k -> new LongAdder()).add(Math.max(0, self));
+        if (frame.parent != null) {
+            frame.parent.childTime += elapsed;
+        }
+    }
+
+    public List<Entry> getCommandEntries() {
+        return sortedBySelfTime(byCommand);
+    }
+
+    public List<Entry> getLineEntries() {
+        return sortedBySelfTime(byLine);
+    }
+
+    // Human-readable tables, limited to the top entries by self time
+    public String report(int limit) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Commands:\n");
+        appendTable(sb, getCommandEntries(), limit);
+        sb.append("Lines:\n");
+        appendTable(sb, getLineEntries(), limit);
+        return sb.toString();
+    }
+
+    // Writes "frame;frame;frame <self microseconds>" lines, readable by flamegraph.pl and speedscope
+    public void writeCollapsedStacks(File file) throws IOException {
+        try (PrintWriter writer = new PrintWriter(new FileWriter(file))) {
+            for (Map.Entry<String, LongAdder> e : collapsedStacks.entrySet()) {
+                writer.println(e.getKey() + " " + e.getValue().sum() / 1000);
+            }
+        }
+    }
+
+    private static void appendTable(StringBuilder sb, List<Entry> entries, int limit) {
+        sb.append(String.format("    %10s %12s %12s %14s  %s%n", "calls", "total ms", "self ms", "alloc bytes", "name"));
+        int shown = 0;
+        for (Entry entry : entries) {
+            if (shown++ >= limit) break;
+            sb.append(String.format("    %10d %12.3f %12.3f %14s  %s%n",
+                    entry.getCount(),
+                    entry.getTotalTime() / 1_000_000.0,
+                    entry.getSelfTime() / 1_000_000.0,
+                    threadBean == null ? "n/a" : String.valueOf(entry.getAllocatedBytes()),
+                    entry.getName()));
+        }
+    }
+
+    private static List<Entry> sortedBySelfTime(Map<String, Entry> entries) {
+        List<Entry> list = new ArrayList<>(entries.values());
+        list.sort(Comparator.comparingLong(Entry::getSelfTime).reversed());
+        return list;
+    }
+
+    private static long allocatedBytes() {
+        return threadBean == null ? 0 : threadBean.getCurrentThreadAllocatedBytes();
+    }
+
+    private static com.sun.management.ThreadMXBean allocationBean() {
+        try {
+            if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+                    && bean.isThreadAllocatedMemorySupported()) {
+                bean.setThreadAllocatedMemoryEnabled(true);
+                return bean;
+            }
+        } catch (UnsupportedOperationException | LinkageError ignored) {
+            // Allocation is reported as n/a
+        }
+        return null;
+    }
+
+    public static final class Frame {
+        private final String commandKey;
+        private final String lineSource;
+        private final String path;
+        private final Frame parent;
+        private long startTime;
+        private long startAllocated;
+        private long childTime;
+
+        private Frame(String commandKey, String lineSource, String path, Frame parent) {
+            this.commandKey = commandKey;
+            this.lineSource = lineSource;
+            this.path = path;
+            this.parent = parent;
+        }
+    }
+
+    // Aggregated numbers for one command class or line, times in nanoseconds
+    public static final class Entry {
+        private final String name;
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder total = new LongAdder();
+        private final LongAdder self = new LongAdder();
+        private final LongAdder allocated = new LongAdder();
+
+        private Entry(String name) {
+            this.name = name;
+        }
+
+        private void record(long elapsed, long selfTime, long allocatedBytes) {
+            calls.increment();
+            total.add(elapsed);
+            self.add(selfTime);
+            allocated.add(allocatedBytes);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getCount() {
+            return calls.sum();
+        }
+
+        public long getTotalTime() {
+            return total.sum();
+        }
+
+        public long getSelfTime() {
+            return self.sum();
+        }
+
+        public long getAllocatedBytes() {
+            return allocated.sum();
+        }
+    }
+}
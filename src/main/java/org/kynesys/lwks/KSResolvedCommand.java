@@ -0,0 +1,110 @@
+package org.kynesys.lwks;
+
+import lombok.Getter;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.util.function.Supplier;
+
+/**
+ * Result of resolving a command name: how to obtain an instance of the command.
+ * Stateless commands are kept as a single shared instance; others are created through the factory on every call.
+ * The preprocessing whitelist is read once from the first instance and kept as a mask indexed by argument position.
+ */
+@Getter
+public class KSResolvedCommand {
+
+    private final String name;
+    private final Class<?> commandClass; // null when registered through a factory
+    private final Supplier<? extends KSScriptingExecutable> factory;
+    private volatile KSScriptingExecutable sharedInstance;
+    private volatile boolean[] preprocessingMask; // null until the first instance exists
+    private volatile boolean preprocessingWhitelistEnabled;
+
+    public KSResolvedCommand(String name, Supplier<? extends KSScriptingExecutable> factory) {
+        this.name = name;
+        this.commandClass = null;
+        this.factory = factory;
+    }
+
+    public KSResolvedCommand(String name, Class<?> commandClass) {
+        this.name = name;
+        this.commandClass = commandClass;
+        this.factory = constructorFactory(commandClass);
+    }
+
+    // Instance to execute: the shared one for stateless commands, a new one otherwise
+    public KSScriptingExecutable getInstance() {
+        KSScriptingExecutable shared = sharedInstance;
+        if (shared != null) {
+            return shared;
+        }
+        KSScriptingExecutable instance = newInstance();
+        if (preprocessingMask == null) {
+            buildPreprocessingMask(instance);
+        }
+        if (instance.isStateless()) {
+            sharedInstance = instance;
+        }
+        return instance;
+    }
+
+    public KSScriptingExecutable newInstance() {
+        return factory.get();
+    }
+
+    // Whether the interpreter expands {{variable}} / {command} at the given argument index (0 is the first argument)
+    // Only valid after getInstance has been called once
+    public boolean isPreprocessed(int argumentIndex) {
+        if (!preprocessingWhitelistEnabled) {
+            return true;
+        }
+        boolean[] mask = preprocessingMask;
+        return argumentIndex < mask.length && mask[argumentIndex];
+    }
+
+    private void buildPreprocessingMask(KSScriptingExecutable instance) {
+        int[] whitelist = instance.getPreprocessingInterpreterWhitelist();
+        int length = 0;
+        for (int index : whitelist) {
+            length = Math.max(length, index + 1);
+        }
+        boolean[] mask = new boolean[length];
+        for (int index : whitelist) {
+            if (index >= 0) {
+                mask[index] = true;
+            }
+        }
+        preprocessingWhitelistEnabled = instance.isPreprocessingInterpreterWhitelistEnabled();
+        preprocessingMask = mask;
+    }
+
+    private static Supplier<KSScriptingExecutable> constructorFactory(Class<?> commandClass) {
+        MethodHandle constructor;
+        try {
+            constructor = MethodHandles.publicLookup()
+                    .findConstructor(commandClass, MethodType.methodType(void.class))
+                    .asType(MethodType.methodType(KSScriptingExecutable.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            // Non-public class or constructor: fall back to reflection
+            return () -> {
+                try {
+                    Constructor<?> declared = commandClass.getDeclaredConstructor();
+                    declared.setAccessible(true);
+                    return (KSScriptingExecutable) declared.newInstance();
+                } catch (Exception ex) {
+                    throw new RuntimeException("Failed to create command instance", ex);
+                }
+            };
+        }
+        return () -> {
+            try {
+                return (KSScriptingExecutable) constructor.invokeExact();
+            } catch (Throwable e) {
+                throw new RuntimeException("Failed to create command instance", e);
+            }
+        };
+    }
+}
@@ -0,0 +1,100 @@
+package org.kynesys.lwks;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Variables of an isolated child session: reads fall through to the parent, writes stay in a local layer.
+ * Creating one is O(1); nothing is copied from the parent, and the layer (a small map keyed by name) is only allocated on the first write.
+ * Removing a variable that the parent still has leaves a marker in the local layer, so it stays hidden from this scope.
+ */
+class KSScopedVariables extends KSVariables {
+
+    static final Object REMOVED = new Object();
+
+    private final KSVariables parent;
+    private volatile Map<Object, Object> layer; // null until something is written
+
+    KSScopedVariables(KSVariables parent) {
+        this.parent = parent;
+    }
+
+    private Map<Object, Object> layer() {
+        Map<Object, Object> current = layer;
+        if (current == null) {
+            synchronized (this) {
+                current = layer;
+                if (current == null) {
+                    current = new ConcurrentHashMap<>(8);
+                    layer = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    @Override
+    public Object getSlot(int slot) {
+        Map<Object, Object> current = layer;
+        Object value = current == null ? null : current.get(KSSymbolTable.nameOf(slot));
+        if (value == REMOVED) {
+            return null;
+        }
+        return value != null ? value : parent.getSlot(slot);
+    }
+
+    @Override
+    public void setSlot(int slot, Object value) {
+        layer().put(KSSymbolTable.nameOf(slot), value);
+    }
+
+    @Override
+    public void removeSlot(int slot) {
+        removeLocal(KSSymbolTable.nameOf(slot), parent.getSlot(slot) != null);
+    }
+
+    @Override
+    Object getNamed(Object name) {
+        Map<Object, Object> current = layer;
+        Object value = current == null ? null : current.get(name);
+        if (value == REMOVED) {
+            return null;
+        }
+        return value != null ? value : parent.getNamed(name);
+    }
+
+    @Override
+    void setNamed(Object name, Object value) {
+        layer().put(name, value);
+    }
+
+    @Override
+    void removeNamed(Object name) {
+        removeLocal(name, parent.getNamed(name) != null);
+    }
+
+    private void removeLocal(Object name, boolean visibleInParent) {
+        if (visibleInParent) {
+            layer().put(name, REMOVED);
+        } else if (layer != null) {
+            layer.remove(name);
+        }
+    }
+
+    @Override
+    Map<Object, Object> snapshot() {
+        Map<Object, Object> merged = new LinkedHashMap<>(parent.snapshot());
+        Map<Object, Object> current = layer;
+        if (current != null) {
+            for (Map.Entry<Object, Object> e : current.entrySet()) {
+                if (e.getValue() == REMOVED) {
+                    merged.remove(e.getKey());
+                } else {
+                    merged.put(e.getKey(), e.getValue());
+                }
+            }
+        }
+        return merged;
+    }
+}
@@ -1,16 +1,34 @@
 package org.kynesys.lwks;
 
 public interface KSScriptingExecutable {
+    int[] EMPTY_WHITELIST = new int[0];
+
     String returnType();
 
     Object execute(Object[] args, KSExecutionSession session) throws Exception;
 
+    // Called by the interpreter with the call site of the compiled line; commands that cache per call site override this
+    default Object execute(Object[] args, KSExecutionSession session, KSCallSite site) throws Exception {
+        return execute(args, session);
+    }
+
     default boolean isPreprocessingInterpreterWhitelistEnabled() {
         return false;
     }
 
     default int[] getPreprocessingInterpreterWhitelist() {
-        return new int[0];
+        return EMPTY_WHITELIST;
+    }
+
+    // Stateless commands are instantiated once per session and reused for every line that calls them
+    default boolean isStateless() {
+        return false;
+    }
+
+    // Pure commands return an equal result for equal arguments and have no side effects,
+    // so a call whose arguments are all constants is evaluated once per compiled line and reused
+    default boolean isPure() {
+        return false;
     }
 
     default String getManual() {return "";}
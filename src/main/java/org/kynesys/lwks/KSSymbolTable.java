@@ -0,0 +1,65 @@
+package org.kynesys.lwks;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide numbering of variable names.
+ * A name gets a slot index the first time it is seen; sessions store variables in arrays indexed by slot,
+ * so a lookup resolved at compile time is an array access. Slots are never reused, so the table is capped at MAX_SLOTS:
+ * names first seen after that (typically generated ones) get no slot and are stored by name instead.
+ */
+public final class KSSymbolTable {
+
+    public static final int MAX_SLOTS = 4096;
+
+    private static final ConcurrentHashMap<Object, Integer> slots = new ConcurrentHashMap<>();
+    private static volatile Object[] names = new Object[64];
+    private static int nextSlot = 0; // guarded by slots
+    private static volatile boolean full = false;
+
+    private KSSymbolTable() {
+    }
+
+    // Slot of the name, assigning a new one if needed; -1 once the table is full
+    public static int slotOf(Object name) {
+        Integer slot = slots.get(name);
+        if (slot != null) {
+            return slot;
+        }
+        if (full) {
+            return -1;
+        }
+        synchronized (slots) {
+            slot = slots.get(name);
+            if (slot != null) {
+                return slot;
+            }
+            if (nextSlot >= MAX_SLOTS) {
+                full = true;
+                return -1;
+            }
+            int assigned = nextSlot++;
+            Object[] current = names;
+            if (assigned >= current.length) {
+                Object[] grown = new Object[current.length * 2];
+                System.arraycopy(current, 0, grown, 0, current.length);
+                current = grown;
+            }
+            current[assigned] = name;
+            names = current;
+            // Published after the name, so anyone who finds the slot can also read its name
+            slots.put(name, assigned);
+            return assigned;
+        }
+    }
+
+    // Slot of the name, or -1 if the name was never used or has no slot
+    public static int find(Object name) {
+        Integer slot = slots.get(name);
+        return slot == null ? -1 : slot;
+    }
+
+    public static Object nameOf(int slot) {
+        return names[slot];
+    }
+}
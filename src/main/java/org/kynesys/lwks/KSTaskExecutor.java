@@ -0,0 +1,164 @@
+package org.kynesys.lwks;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executor for asynchronous script tasks, owned by a session and created on first use.
+ * Configured from environment variables read at that point:
+ *   AsyncMode    = platform (default) | virtual
+ *   AsyncThreads = maximum number of platform threads (default: available processors)
+ *   AsyncQueue   = maximum number of queued platform tasks (default: 10000)
+ * Platform mode keeps at most AsyncThreads threads and queues up to AsyncQueue tasks; once the queue is full the submitting
+ * thread runs the task itself, which slows a script that submits faster than the pool drains instead of growing memory without bound.
+ * Virtual mode starts one virtual thread per task.
+ * Pool threads are daemons, so whoever owns the session must call shutdownAndAwait before exiting (the interpreter's main does).
+ * Tasks are counted from submit until their body returns, so shutdownAndAwait also waits for tasks that running tasks submit.
+ */
+public class KSTaskExecutor {
+
+    private static final int DEFAULT_QUEUE = 10_000;
+
+    private final KSEnvironment environment;
+    private final AtomicInteger threadCounter = new AtomicInteger();
+    private volatile ExecutorService executor;
+    private int pending; // submitted tasks whose body has not returned; guarded by this
+
+    public KSTaskExecutor(KSEnvironment environment) {
+        this.environment = environment;
+    }
+
+    public <T> Future<T> submit(Callable<T> task) {
+        synchronized (this) {
+            pending++;
+        }
+        CountedTask<T> counted = new CountedTask<>(task);
+        try {
+            getExecutor().execute(counted);
+        } catch (RuntimeException | Error e) {
+            counted.release();
+            throw e;
+        }
+        return counted;
+    }
+
+    public ExecutorService getExecutor() {
+        ExecutorService current = executor;
+        if (current == null) {
+            synchronized (this) {
+                current = executor;
+                if (current == null) {
+                    current = createExecutor();
+                    executor = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    // Waits for every submitted task to finish, including tasks submitted meanwhile; the executor is recreated if used again
+    public void shutdownAndAwait() throws InterruptedException {
+        ExecutorService current;
+        synchronized (this) {
+            // Once nothing is pending no task is running, so nothing can submit another one
+            while (pending > 0) {
+                wait();
+            }
+            current = executor;
+            executor = null;
+        }
+        if (current != null) {
+            current.shutdown();
+            while (!current.awaitTermination(1, TimeUnit.MINUTES)) {
+                // keep waiting, like the JVM does for non-daemon threads
+            }
+        }
+    }
+
+    private synchronized void finished() {
+        if (--pending == 0) {
+            notifyAll();
+        }
+    }
+
+    // Releases its count exactly once: when the body returns, or when it is cancelled before the body started
+    private final class CountedTask<T> extends FutureTask<T> {
+        private static final int WAITING = 0, RUNNING = 1, RELEASED = 2;
+        private final AtomicInteger state;
+
+        CountedTask(Callable<T> task) {
+            this(task, new AtomicInteger(WAITING));
+        }
+
+        private CountedTask(Callable<T> task, AtomicInteger state) {
+            super(() -> {
+                if (!state.compareAndSet(WAITING, RUNNING)) {
+                    return null; // cancelled before it started
+                }
+                try {
+                    return task.call();
+                } finally {
+                    state.set(RELEASED);
+                    finished();
+                }
+            });
+            this.state = state;
+        }
+
+        @Override
+        protected void done() {
+            if (state.compareAndSet(WAITING, RELEASED)) {
+                finished();
+            }
+        }
+
+        void release() {
+            done();
+        }
+    }
+
+    private ExecutorService createExecutor() {
+        String mode = environment.getEnvVar().getOrDefault("AsyncMode", "platform");
+        switch (mode) {
+            case "virtual" -> {
+                return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("KSAsync-virtual-", 0).factory());
+            }
+            case "platform" -> {
+                int threads = Runtime.getRuntime().availableProcessors();
+                String configured = environment.getEnvVar().get("AsyncThreads");
+                if (configured != null && !configured.isEmpty()) {
+                    threads = Integer.parseInt(configured.trim());
+                    if (threads < 1) {
+                        throw new IllegalArgumentException("AsyncThreads must be at least 1");
+                    }
+                }
+                ThreadFactory factory = runnable -> {
+                    Thread thread = new Thread(runnable, "KSAsync-" + threadCounter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                };
+                int queue = DEFAULT_QUEUE;
+                String configuredQueue = environment.getEnvVar().get("AsyncQueue");
+                if (configuredQueue != null && !configuredQueue.isEmpty()) {
+                    queue = Integer.parseInt(configuredQueue.trim());
+                    if (queue < 1) {
+                        throw new IllegalArgumentException("AsyncQueue must be at least 1");
+                    }
+                }
+                ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                        new LinkedBlockingQueue<>(queue), factory, new ThreadPoolExecutor.CallerRunsPolicy());
+                pool.allowCoreThreadTimeOut(true);
+                return pool;
+            }
+            default -> throw new IllegalArgumentException("Unknown AsyncMode: " + mode + " (expected platform or virtual)");
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package org.kynesys.lwks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Fail-fast group of child tasks, in the spirit of StructuredTaskScope (still a preview API on Java 21).
+ * Each fork runs on its own virtual thread, at most maxConcurrency at a time, so scopes can nest without exhausting a pool.
+ * joinAll returns the results in fork order; the first failure cancels the remaining tasks and is rethrown.
+ * Closing the scope cancels anything still running and waits for the threads to exit.
+ */
+public class KSTaskScope implements AutoCloseable {
+
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("KSScope-", 0).factory());
+    private final CompletionService<Object> completion = new ExecutorCompletionService<>(executor);
+    private final List<Future<Object>> forks = new ArrayList<>();
+    private final Semaphore permits;
+
+    public KSTaskScope(int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("Concurrency must be at least 1");
+        }
+        this.permits = new Semaphore(maxConcurrency);
+    }
+
+    public KSTaskScope() {
+        this(Integer.MAX_VALUE);
+    }
+
+    public Future<Object> fork(Callable<?> task) {
+        Future<Object> future = completion.submit(() -> {
+            permits.acquire();
+            try {
+                return task.call();
+            } finally {
+                permits.release();
+            }
+        });
+        forks.add(future);
+        return future;
+    }
+
+    public List<Object> joinAll() throws InterruptedException {
+        try {
+            for (int i = 0; i < forks.size(); i++) {
+                Future<Object> done = completion.take();
+                if (done.isCancelled()) {
+                    continue;
+                }
+                try {
+                    done.get();
+                } catch (ExecutionException e) {
+                    cancelAll();
+                    Throwable cause = e.getCause();
+                    if (cause instanceof RuntimeException runtimeException) {
+                        throw runtimeException;
+                    }
+                    throw new RuntimeException(cause);
+                }
+            }
+        } catch (InterruptedException e) {
+            cancelAll();
+            throw e;
+        }
+
+        List<Object> results = new ArrayList<>(forks.size());
+        for (Future<Object> fork : forks) {
+            results.add(fork.resultNow());
+        }
+        return results;
+    }
+
+    private void cancelAll() {
+        for (Future<Object> fork : forks) {
+            fork.cancel(true);
+        }
+    }
+
+    @Override
+    public void close() {
+        cancelAll();
+        executor.close();
+    }
+}
@@ -0,0 +1,86 @@
+package org.kynesys.lwks;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Flat variable storage of a root session: one array element per symbol slot, grown on demand up to the slots it uses.
+ * Reads and writes are single atomic array accesses, so the store can be shared by asynchronous tasks.
+ * Names without a slot go to a concurrent map.
+ */
+class KSVariableStore extends KSVariables {
+
+    private volatile AtomicReferenceArray<Object> slots = new AtomicReferenceArray<>(32);
+    private final Map<Object, Object> named = new ConcurrentHashMap<>();
+
+    @Override
+    public Object getSlot(int slot) {
+        AtomicReferenceArray<Object> current = slots;
+        return slot < current.length() ? current.get(slot) : null;
+    }
+
+    @Override
+    public void setSlot(int slot, Object value) {
+        AtomicReferenceArray<Object> current;
+        do {
+            current = slot < slots.length() ? slots : grow(slot);
+            current.set(slot, value);
+            // If the array was replaced meanwhile the write may have missed the copy; write again
+        } while (current != slots);
+    }
+
+    @Override
+    public void removeSlot(int slot) {
+        if (slot < slots.length()) {
+            setSlot(slot, null);
+        }
+    }
+
+    @Override
+    Object getNamed(Object name) {
+        return named.get(name);
+    }
+
+    @Override
+    void setNamed(Object name, Object value) {
+        named.put(name, value);
+    }
+
+    @Override
+    void removeNamed(Object name) {
+        named.remove(name);
+    }
+
+    private synchronized AtomicReferenceArray<Object> grow(int slot) {
+        AtomicReferenceArray<Object> current = slots;
+        if (slot < current.length()) {
+            return current;
+        }
+        int length = current.length();
+        while (length <= slot) {
+            length *= 2;
+        }
+        AtomicReferenceArray<Object> grown = new AtomicReferenceArray<>(length);
+        for (int i = 0; i < current.length(); i++) {
+            grown.set(i, current.get(i));
+        }
+        slots = grown;
+        return grown;
+    }
+
+    @Override
+    Map<Object, Object> snapshot() {
+        Map<Object, Object> result = new LinkedHashMap<>();
+        AtomicReferenceArray<Object> current = slots;
+        for (int i = 0; i < current.length(); i++) {
+            Object value = current.get(i);
+            if (value != null) {
+                result.put(KSSymbolTable.nameOf(i), value);
+            }
+        }
+        result.putAll(named);
+        return result;
+    }
+}
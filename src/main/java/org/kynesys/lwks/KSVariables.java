@@ -0,0 +1,121 @@
+package org.kynesys.lwks;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Session variable storage addressed by symbol slot (see KSSymbolTable); names the table has no slot for are stored by name.
+ * Also a Map keyed by variable name, for getComplexVariables users; null values are never stored.
+ */
+public abstract class KSVariables extends AbstractMap<Object, Object> {
+
+    public abstract Object getSlot(int slot);
+
+    public abstract void setSlot(int slot, Object value);
+
+    public abstract void removeSlot(int slot);
+
+    // Variables whose name has no slot
+    abstract Object getNamed(Object name);
+
+    abstract void setNamed(Object name, Object value);
+
+    abstract void removeNamed(Object name);
+
+    // Current variables, keyed by name in slot order, followed by the ones without a slot
+    abstract Map<Object, Object> snapshot();
+
+    @Override
+    public Object get(Object key) {
+        int slot = KSSymbolTable.find(key);
+        return slot < 0 ? getNamed(key) : getSlot(slot);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public Object put(Object key, Object value) {
+        int slot = KSSymbolTable.slotOf(key);
+        if (slot < 0) {
+            Object previous = getNamed(key);
+            if (value == null) {
+                removeNamed(key);
+            } else {
+                setNamed(key, value);
+            }
+            return previous;
+        }
+        Object previous = getSlot(slot);
+        if (value == null) {
+            removeSlot(slot);
+        } else {
+            setSlot(slot, value);
+        }
+        return previous;
+    }
+
+    @Override
+    public Object remove(Object key) {
+        int slot = KSSymbolTable.find(key);
+        if (slot < 0) {
+            Object previous = getNamed(key);
+            removeNamed(key);
+            return previous;
+        }
+        Object previous = getSlot(slot);
+        removeSlot(slot);
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        for (Object key : snapshot().keySet()) {
+            remove(key);
+        }
+    }
+
+    // Iteration works on a snapshot; removing through the iterator removes the variable
+    @Override
+    public Set<Entry<Object, Object>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<Object, Object>> iterator() {
+                Iterator<Entry<Object, Object>> snapshot = snapshot().entrySet().iterator();
+                return new Iterator<>() {
+                    private Entry<Object, Object> current;
+
+                    @Override
+                    public boolean hasNext() {
+                        return snapshot.hasNext();
+                    }
+
+                    @Override
+                    public Entry<Object, Object> next() {
+                        current = snapshot.next();
+                        return current;
+                    }
+
+                    @Override
+                    public void remove() {
+                        if (current == null) {
+                            throw new IllegalStateException();
+                        }
+                        KSVariables.this.remove(current.getKey());
+                        current = null;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return snapshot().size();
+            }
+        };
+    }
+}
@@ -0,0 +1,114 @@
+package org.kynesys.ksscripting.compiler;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HexFormat;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScriptCacheTest {
+
+    // Blank and comment lines, nested subcommands, variables, quoted literals and non-ASCII text
+    private static final String SCRIPT = String.join("\n",
+            "# cache round trip",
+            "StoreValue i = {Int 0}",
+            "",
+            "While {CompareNumber {{i}} < {Int 5}} StoreValue i = {Math add {{i}} {Int 1}}",
+            "// comment line",
+            "Print {GetAsString hello \" \" world} {{i}}",
+            "For x in {Range 0 5} StoreValue total = {Math add {{total}} {Int64 {{x}}}}",
+            "RunIf {CompareNumber {{i}} == {Int 5}} Print \"if ok\"",
+            "Print \"héllo wörld ✓\" {{ü}}",
+            "   ",
+            "Print");
+
+    @Test
+    void cacheReadsBackTheCompiledTree(@TempDir Path directory) throws IOException {
+        Path script = directory.resolve("script.kss");
+        Files.writeString(script, SCRIPT, StandardCharsets.UTF_8);
+        File cacheDirectory = directory.resolve("cache").toFile();
+
+        CompiledScript compiled = ScriptCache.load(script.toFile(), cacheDirectory.getPath());
+        byte[] hash = ScriptCache.hash(Files.readAllBytes(script));
+        File cacheFile = new File(cacheDirectory, HexFormat.of().formatHex(hash) + ".kssc");
+        assertTrue(cacheFile.isFile());
+
+        CompiledScript cached = ScriptCache.read(cacheFile, hash);
+        assertNotNull(cached);
+        assertArrayEquals(compiled.getSourceLines(), cached.getSourceLines());
+        assertEquals(SCRIPT.split("\n", -1).length, cached.size());
+
+        String[] sourceLines = cached.getSourceLines();
+        for (int i = 0; i < sourceLines.length; i++) {
+            if (sourceLines[i] == null) {
+                assertNull(cached.getLines()[i], "line " + (i + 1));
+            } else {
+                assertSameTree(KSScriptingCompiler.compileLine(sourceLines[i]), cached.getLines()[i], "line " + (i + 1));
+            }
+        }
+
+        // Loading again takes the cached tree, which is the same as the one just read
+        CompiledScript reloaded = ScriptCache.load(script.toFile(), cacheDirectory.getPath());
+        for (int i = 0; i < sourceLines.length; i++) {
+            if (sourceLines[i] != null) {
+                assertSameTree(cached.getLines()[i], reloaded.getLines()[i], "line " + (i + 1));
+            }
+        }
+    }
+
+    @Test
+    void cacheOfOtherContentIsIgnored(@TempDir Path directory) throws IOException {
+        Path script = directory.resolve("script.kss");
+        Files.writeString(script, "Print before", StandardCharsets.UTF_8);
+        ScriptCache.load(script.toFile(), "1");
+        assertTrue(new File(script + ".kssc").isFile());
+
+        Files.writeString(script, "Print after", StandardCharsets.UTF_8);
+        CompiledScript compiled = ScriptCache.load(script.toFile(), "1");
+        assertSameTree(KSScriptingCompiler.compileLine("Print after"), compiled.getLines()[0], "line 1");
+
+        CompiledScript cached = ScriptCache.read(new File(script + ".kssc"), ScriptCache.hash(Files.readAllBytes(script)));
+        assertNotNull(cached);
+        assertEquals("Print after", cached.getSourceLines()[0]);
+    }
+
+    private static void assertSameTree(CommandNode expected, CommandNode actual, String where) {
+        assertNotNull(actual, where);
+        if (expected == CommandNode.EMPTY) {
+            assertSame(CommandNode.EMPTY, actual, where);
+            return;
+        }
+        assertEquals(expected.getCommandPart(), actual.getCommandPart(), where);
+        assertEquals(expected.getSource(), actual.getSource(), where);
+        assertEquals(expected.getArguments().length, actual.getArguments().length, where);
+        for (int i = 0; i < expected.getArguments().length; i++) {
+            Node expectedArgument = expected.getArguments()[i];
+            Node actualArgument = actual.getArguments()[i];
+            String argumentWhere = where + ", argument " + (i + 1);
+            assertEquals(expectedArgument.getClass(), actualArgument.getClass(), argumentWhere);
+            switch (expectedArgument) {
+                case VariableNode variable -> {
+                    assertEquals(variable.getVariableName(), ((VariableNode) actualArgument).getVariableName(), argumentWhere);
+                    assertEquals(variable.getSource(), ((VariableNode) actualArgument).getSource(), argumentWhere);
+                    assertEquals(variable.getSlot(), ((VariableNode) actualArgument).getSlot(), argumentWhere);
+                }
+                case SubcommandNode subcommand -> {
+                    assertEquals(subcommand.getSource(), ((SubcommandNode) actualArgument).getSource(), argumentWhere);
+                    assertSameTree(subcommand.getCommand(), ((SubcommandNode) actualArgument).getCommand(), argumentWhere);
+                }
+                default -> assertEquals(expectedArgument.getRawValue(), actualArgument.getRawValue(), argumentWhere);
+            }
+        }
+    }
+}
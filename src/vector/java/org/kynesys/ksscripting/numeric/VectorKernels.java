@@ -0,0 +1,206 @@
+package org.kynesys.ksscripting.numeric;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Vector API versions of the BulkKernels loops.
+ * Built only with ./gradlew -Pvector, and only loaded when the JVM was started with --add-modules jdk.incubator.vector; see BulkKernels.
+ * Element-wise long addition and subtraction check every lane for overflow, the same as Math.addExact;
+ * a long sum whose lanes overflow is handed back to the scalar loop, which only fails if the total overflows.
+ */
+final class VectorKernels implements VectorBackend {
+
+    private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Long> LONGS = LongVector.SPECIES_PREFERRED;
+
+    // Below two lanes there is nothing to gain over the scalar loop
+    static boolean isUseful() {
+        return DOUBLES.length() >= 2 && LONGS.length() >= 2;
+    }
+
+    @Override
+    public long sum(long[] a) {
+        LongVector acc = LongVector.zero(LONGS);
+        int i = 0;
+        for (int bound = LONGS.loopBound(a.length); i < bound; i += LONGS.length()) {
+            LongVector v = LongVector.fromArray(LONGS, a, i);
+            LongVector r = acc.add(v);
+            if (overflows(acc, v, r)) {
+                // A lane overflowing does not mean the total does; let the scalar loop decide
+                return BulkKernels.scalarSum(a);
+            }
+            acc = r;
+        }
+        long sum = 0;
+        for (long lane : acc.toArray()) {
+            long r = sum + lane;
+            if (((sum ^ r) & (lane ^ r)) < 0) {
+                return BulkKernels.scalarSum(a);
+            }
+            sum = r;
+        }
+        for (; i < a.length; i++) {
+            long r = sum + a[i];
+            if (((sum ^ r) & (a[i] ^ r)) < 0) {
+                return BulkKernels.scalarSum(a);
+            }
+            sum = r;
+        }
+        return sum;
+    }
+
+    @Override
+    public double sum(double[] a) {
+        DoubleVector acc = DoubleVector.zero(DOUBLES);
+        int i = 0;
+        for (int bound = DOUBLES.loopBound(a.length); i < bound; i += DOUBLES.length()) {
+            acc = acc.add(DoubleVector.fromArray(DOUBLES, a, i));
+        }
+        double sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < a.length; i++) {
+            sum += a[i];
+        }
+        return sum;
+    }
+
+    @Override
+    public long min(long[] a) {
+        return reduce(a, VectorOperators.MIN, Long.MAX_VALUE);
+    }
+
+    @Override
+    public long max(long[] a) {
+        return reduce(a, VectorOperators.MAX, Long.MIN_VALUE);
+    }
+
+    @Override
+    public double min(double[] a) {
+        return reduce(a, VectorOperators.MIN, Double.POSITIVE_INFINITY);
+    }
+
+    @Override
+    public double max(double[] a) {
+        return reduce(a, VectorOperators.MAX, Double.NEGATIVE_INFINITY);
+    }
+
+    @Override
+    public double dot(double[] a, double[] b) {
+        DoubleVector acc = DoubleVector.zero(DOUBLES);
+        int i = 0;
+        for (int bound = DOUBLES.loopBound(a.length); i < bound; i += DOUBLES.length()) {
+            acc = acc.add(DoubleVector.fromArray(DOUBLES, a, i).mul(DoubleVector.fromArray(DOUBLES, b, i)));
+        }
+        double sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    @Override
+    public long[] add(long[] a, long[] b) {
+        long[] out = new long[a.length];
+        int i = 0;
+        for (int bound = LONGS.loopBound(a.length); i < bound; i += LONGS.length()) {
+            LongVector va = LongVector.fromArray(LONGS, a, i);
+            LongVector vb = LongVector.fromArray(LONGS, b, i);
+            LongVector r = va.add(vb);
+            if (overflows(va, vb, r)) {
+                throw new ArithmeticException("long overflow");
+            }
+            r.intoArray(out, i);
+        }
+        for (; i < a.length; i++) {
+            out[i] = Math.addExact(a[i], b[i]);
+        }
+        return out;
+    }
+
+    @Override
+    public long[] subtract(long[] a, long[] b) {
+        long[] out = new long[a.length];
+        int i = 0;
+        for (int bound = LONGS.loopBound(a.length); i < bound; i += LONGS.length()) {
+            LongVector va = LongVector.fromArray(LONGS, a, i);
+            LongVector vb = LongVector.fromArray(LONGS, b, i);
+            LongVector r = va.sub(vb);
+            // a - b overflows when a and b differ in sign and the result differs in sign from a
+            if (va.lanewise(VectorOperators.XOR, vb).and(va.lanewise(VectorOperators.XOR, r)).compare(VectorOperators.LT, 0).anyTrue()) {
+                throw new ArithmeticException("long overflow");
+            }
+            r.intoArray(out, i);
+        }
+        for (; i < a.length; i++) {
+            out[i] = Math.subtractExact(a[i], b[i]);
+        }
+        return out;
+    }
+
+    private static double[] apply(double[] a, double[] b, VectorOperators.Binary op) {
+        double[] out = new double[a.length];
+        int i = 0;
+        for (int bound = DOUBLES.loopBound(a.length); i < bound; i += DOUBLES.length()) {
+            DoubleVector.fromArray(DOUBLES, a, i).lanewise(op, DoubleVector.fromArray(DOUBLES, b, i)).intoArray(out, i);
+        }
+        if (i < a.length) {
+            VectorMask<Double> tail = DOUBLES.indexInRange(i, a.length);
+            DoubleVector.fromArray(DOUBLES, a, i, tail).lanewise(op, DoubleVector.fromArray(DOUBLES, b, i, tail)).intoArray(out, i, tail);
+        }
+        return out;
+    }
+
+    @Override
+    public double[] add(double[] a, double[] b) {
+        return apply(a, b, VectorOperators.ADD);
+    }
+
+    @Override
+    public double[] subtract(double[] a, double[] b) {
+        return apply(a, b, VectorOperators.SUB);
+    }
+
+    @Override
+    public double[] multiply(double[] a, double[] b) {
+        return apply(a, b, VectorOperators.MUL);
+    }
+
+    @Override
+    public double[] divide(double[] a, double[] b) {
+        return apply(a, b, VectorOperators.DIV);
+    }
+
+    private static long reduce(long[] a, VectorOperators.Associative op, long identity) {
+        LongVector acc = LongVector.broadcast(LONGS, identity);
+        int i = 0;
+        for (int bound = LONGS.loopBound(a.length); i < bound; i += LONGS.length()) {
+            acc = acc.lanewise(op, LongVector.fromArray(LONGS, a, i));
+        }
+        long result = acc.reduceLanes(op);
+        for (; i < a.length; i++) {
+            result = op == VectorOperators.MIN ? Math.min(result, a[i]) : Math.max(result, a[i]);
+        }
+        return result;
+    }
+
+    private static double reduce(double[] a, VectorOperators.Associative op, double identity) {
+        DoubleVector acc = DoubleVector.broadcast(DOUBLES, identity);
+        int i = 0;
+        for (int bound = DOUBLES.loopBound(a.length); i < bound; i += DOUBLES.length()) {
+            acc = acc.lanewise(op, DoubleVector.fromArray(DOUBLES, a, i));
+        }
+        double result = acc.reduceLanes(op);
+        for (; i < a.length; i++) {
+            result = op == VectorOperators.MIN ? Math.min(result, a[i]) : Math.max(result, a[i]);
+        }
+        return result;
+    }
+
+    // a + b overflows when a and b have the same sign and the result has the other one
+    private static boolean overflows(LongVector a, LongVector b, LongVector r) {
+        return a.lanewise(VectorOperators.XOR, r).and(b.lanewise(VectorOperators.XOR, r)).compare(VectorOperators.LT, 0).anyTrue();
+    }
+}